@@ -0,0 +1,50 @@
+package com.whitelisthub.plugin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON helpers used for every message on the hub WebSocket: reading a field
+ * from an incoming command and quoting a value for an outgoing event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WsBridgeBenchmark {
+
+    private String command = "{\"type\":\"whitelist_add\",\"requestId\":\"4f1c2a9e\",\"username\":\"Player_1234\","
+        + "\"reason\":\"Approved by \\\"admin\\\"\\n\"}";
+    private String value = "Player joined: \"Player_1234\"\n";
+
+    @Benchmark
+    public String extractType() {
+        return WsBridge.extractJsonString(command, "type");
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return WsBridge.extractJsonString(command, "username");
+    }
+
+    @Benchmark
+    public String extractEscaped() {
+        return WsBridge.extractJsonString(command, "reason");
+    }
+
+    @Benchmark
+    public String jsonString() {
+        return WsBridge.jsonString(value);
+    }
+}
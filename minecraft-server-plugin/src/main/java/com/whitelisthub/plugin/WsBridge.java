@@ -163,7 +163,7 @@ public final class WsBridge {
         }
     }
 
-    private static String extractJsonString(String json, String key) {
+    static String extractJsonString(String json, String key) {
         if (json == null) return null;
         String needle = "\"" + key + "\"";
         int idx = json.indexOf(needle);
@@ -210,7 +210,7 @@ public final class WsBridge {
         return out.toString();
     }
 
-    private static String jsonString(String s) {
+    static String jsonString(String s) {
         if (s == null) return "\"\"";
         byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,121 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for Mojang's bulk profile lookup, for testing online-mode
+ * identity resolution without network access.
+ * <p>
+ * Every name resolves to a stable UUID derived from it, except names that
+ * start with {@code ghost}, which do not exist. Like the real endpoint it
+ * rejects more than {@code --batch} names per request with HTTP 400, and
+ * {@code --fail} answers that share of requests with HTTP 429.
+ * <pre>
+ * java bench/FakeProfileApi.java --port 8089 --latency 50
+ * java -jar target/minecraft-whitelist-api-1.0.0.jar \
+ *     --minecraft.server.identity.profile-url=http://127.0.0.1:8089/
+ * </pre>
+ */
+public class FakeProfileApi {
+    
+    private static final Pattern NAME = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"");
+    
+    public static void main(String[] args) throws IOException {
+        int port = 8089;
+        int batch = 10;
+        long latencyMs = 0;
+        double failRate = 0;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(args[i + 1]);
+                case "--batch" -> batch = Integer.parseInt(args[i + 1]);
+                case "--latency" -> latencyMs = Long.parseLong(args[i + 1]);
+                case "--fail" -> failRate = Double.parseDouble(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        
+        LongAdder requests = new LongAdder();
+        LongAdder names = new LongAdder();
+        int maxBatch = batch;
+        long delay = latencyMs;
+        double fail = failRate;
+        
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                if (!exchange.getRequestMethod().equals("POST")) {
+                    send(exchange, 405, "{\"error\":\"Method Not Allowed\"}");
+                    return;
+                }
+                
+                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                List<String> requested = new ArrayList<>();
+                Matcher matcher = NAME.matcher(body);
+                while (matcher.find()) {
+                    requested.add(matcher.group(1));
+                }
+                requests.increment();
+                names.add(requested.size());
+                
+                if (delay > 0) {
+                    Thread.sleep(delay);
+                }
+                if (ThreadLocalRandom.current().nextDouble() < fail) {
+                    send(exchange, 429, "{\"error\":\"TooManyRequestsException\"}");
+                    return;
+                }
+                if (requested.size() > maxBatch) {
+                    send(exchange, 400, "{\"error\":\"CONSTRAINT_VIOLATION\",\"errorMessage\":\"size must be between 1 and "
+                        + maxBatch + "\"}");
+                    return;
+                }
+                
+                StringBuilder json = new StringBuilder("[");
+                for (String name : requested) {
+                    if (name.toLowerCase(Locale.ROOT).startsWith("ghost")) {
+                        continue;
+                    }
+                    UUID uuid = UUID.nameUUIDFromBytes(("FakeProfile:" + name.toLowerCase(Locale.ROOT))
+                        .getBytes(StandardCharsets.UTF_8));
+                    if (json.length() > 1) {
+                        json.append(',');
+                    }
+                    json.append("{\"id\":\"").append(uuid.toString().replace("-", ""))
+                        .append("\",\"name\":\"").append(name).append("\"}");
+                }
+                send(exchange, 200, json.append(']').toString());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+        
+        System.out.printf("Fake profile API on http://127.0.0.1:%d/ (batch limit %d)%n", port, maxBatch);
+        Runtime.getRuntime().addShutdownHook(new Thread(() ->
+            System.out.printf("%d lookups, %d names%n", requests.sum(), names.sum())));
+    }
+    
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,564 @@
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test for the whitelist API against a fake Minecraft server.
+ * <p>
+ * {@link FakeRcon} speaks the Source RCON protocol and keeps the whitelist in
+ * memory. Replies are delayed by a configurable latency plus jitter, split
+ * into fragments like a real server does for long output, and faults can be
+ * injected: dropped connections, commands that are never answered and a
+ * full outage window. Replies on one connection always arrive in order, so
+ * pipelined clients behave as they would against a real server.
+ * <p>
+ * The load generator is open-loop: requests are sent on a fixed schedule
+ * whatever the response times, and latency is measured from the scheduled
+ * send time, so a stalled server shows up in the percentiles instead of
+ * silently lowering the request rate.
+ * <p>
+ * Run from {@code minecraft-server/} after {@code mvn package}. By default it
+ * starts the fake server in this process and launches the packaged API
+ * against it; no network access or Minecraft server is needed:
+ * <pre>
+ * java bench/LoadTest.java --rate 500 --duration 30 --latency 20 --jitter 10
+ * java bench/LoadTest.java --rate 200 --fail 0.01 --outage 10:5 --max-error-rate 0.2
+ * java bench/LoadTest.java --url http://host:3003 --api-key KEY --rate 100   # existing API
+ * java bench/LoadTest.java --serve-rcon --rcon-port 25575                     # fake server only
+ * </pre>
+ * Arguments after {@code --} are passed to the launched API, for example
+ * {@code -- --minecraft.server.rcon.pool-size=8}. The exit status is 1 when
+ * {@code --max-error-rate} or {@code --max-p99-ms} is exceeded, so the test
+ * can gate a CI job.
+ */
+public class LoadTest {
+    
+    private static final Path JAR = Path.of("target/minecraft-whitelist-api-1.0.0.jar");
+    
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        
+        try (FakeRcon rcon = new FakeRcon(options)) {
+            if (options.serveRcon) {
+                System.out.printf("Fake RCON listening on port %d (password \"%s\", %d players)%n",
+                    rcon.port(), options.rconPassword, rcon.whitelist.size());
+                Thread.currentThread().join();
+                return;
+            }
+            
+            if (options.url != null) {
+                System.exit(drive(options, options.url, rcon) ? 0 : 1);
+            }
+            
+            if (!Files.exists(JAR)) {
+                System.err.println("Missing " + JAR + "; run mvn package first");
+                System.exit(1);
+            }
+            
+            Process api = launch(options, rcon.port());
+            boolean passed;
+            try {
+                passed = drive(options, "http://127.0.0.1:" + options.apiPort, rcon);
+            } finally {
+                api.destroy();
+                api.waitFor(10, TimeUnit.SECONDS);
+            }
+            System.exit(passed ? 0 : 1);
+        }
+    }
+    
+    private static Process launch(Options options, int rconPort) throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            options.apiPort = probe.getLocalPort();
+        }
+        
+        List<String> command = new ArrayList<>(List.of(
+            Path.of(System.getProperty("java.home"), "bin", "java").toString(), "-jar", JAR.toString(),
+            "--server.port=" + options.apiPort,
+            "--minecraft.server.api-key=" + options.apiKey,
+            "--minecraft.server.rcon.host=127.0.0.1",
+            "--minecraft.server.rcon.port=" + rconPort,
+            "--minecraft.server.rcon.password=" + options.rconPassword,
+            "--minecraft.server.rate-limit.enabled=false",
+            "--logging.level.com.whitelisthub=WARN"));
+        command.addAll(options.apiArgs);
+        
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        return builder.start();
+    }
+    
+    private static boolean drive(Options options, String base, FakeRcon rcon) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+        awaitHealthy(client, base, options.apiKey);
+        
+        if (options.outage != null) {
+            rcon.scheduleOutage(options.warmupSeconds + options.outage[0], options.outage[1]);
+        }
+        
+        long total = (long) options.rate * (options.warmupSeconds + options.durationSeconds);
+        long warmup = (long) options.rate * options.warmupSeconds;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate;
+        long[] latencies = new long[(int) (total - warmup)];
+        Arrays.fill(latencies, -1);
+        Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch((int) total);
+        
+        System.out.printf("Driving %s at %d req/s for %d s (+%d s warm-up), mix %s%n",
+            base, options.rate, options.durationSeconds, options.warmupSeconds, options.mix);
+        
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        for (long i = 0; i < total; i++) {
+            long scheduled = start + i * intervalNanos;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            
+            boolean measured = i >= warmup;
+            int slot = (int) (i - warmup);
+            client.sendAsync(options.mix.next(base, options.apiKey, options.players), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    if (measured) {
+                        latencies[slot] = System.nanoTime() - scheduled;
+                        String outcome = error != null ? error.getClass().getSimpleName() : String.valueOf(response.statusCode());
+                        outcomes.computeIfAbsent(outcome, k -> new LongAdder()).increment();
+                    }
+                    done.countDown();
+                });
+        }
+        long sendEnd = System.nanoTime();
+        
+        if (!done.await(2, TimeUnit.MINUTES)) {
+            System.out.println("Some requests were still pending after two minutes");
+        }
+        long wallNanos = System.nanoTime() - start - TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+        
+        return report(options, latencies, outcomes, wallNanos, sendEnd - start, rcon);
+    }
+    
+    private static boolean report(Options options, long[] latencies, Map<String, LongAdder> outcomes, long wallNanos,
+                                  long sendNanos, FakeRcon rcon) {
+        long[] completed = Arrays.stream(latencies).filter(l -> l >= 0).sorted().toArray();
+        long ok = outcomes.getOrDefault("200", new LongAdder()).sum() + outcomes.getOrDefault("304", new LongAdder()).sum();
+        double errorRate = completed.length == 0 ? 1 : 1 - (double) ok / completed.length;
+        double p99Ms = completed.length == 0 ? Double.NaN : percentile(completed, 0.99) / 1e6;
+        
+        System.out.println();
+        System.out.printf("requests     %d measured, %d completed%n", latencies.length, completed.length);
+        System.out.printf("offered      %.0f req/s (send loop %.0f req/s)%n", (double) options.rate,
+            latencies.length / ((sendNanos / 1e9) - options.warmupSeconds));
+        System.out.printf("throughput   %.0f req/s%n", completed.length / (wallNanos / 1e9));
+        System.out.printf("outcomes     %s%n", new TreeMap<>(toCounts(outcomes)));
+        System.out.printf("error rate   %.4f%n", errorRate);
+        if (completed.length > 0) {
+            System.out.printf("latency ms   p50 %.1f  p90 %.1f  p99 %.1f  p999 %.1f  max %.1f%n",
+                percentile(completed, 0.50) / 1e6, percentile(completed, 0.90) / 1e6, p99Ms,
+                percentile(completed, 0.999) / 1e6, completed[completed.length - 1] / 1e6);
+        }
+        System.out.printf("fake rcon    %d commands, %d dropped connections, %d stalled, %d players%n",
+            rcon.commands.sum(), rcon.dropped.sum(), rcon.stalled.sum(), rcon.whitelist.size());
+        
+        boolean passed = true;
+        if (options.maxErrorRate >= 0 && errorRate > options.maxErrorRate) {
+            System.out.printf("FAIL: error rate %.4f exceeds %.4f%n", errorRate, options.maxErrorRate);
+            passed = false;
+        }
+        if (options.maxP99Ms >= 0 && !(p99Ms <= options.maxP99Ms)) {
+            System.out.printf("FAIL: p99 %.1f ms exceeds %d ms%n", p99Ms, options.maxP99Ms);
+            passed = false;
+        }
+        return passed;
+    }
+    
+    private static Map<String, Long> toCounts(Map<String, LongAdder> outcomes) {
+        Map<String, Long> counts = new HashMap<>();
+        outcomes.forEach((key, value) -> counts.put(key, value.sum()));
+        return counts;
+    }
+    
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+    
+    private static void awaitHealthy(HttpClient client, String base, String apiKey) throws InterruptedException {
+        HttpRequest health = HttpRequest.newBuilder(URI.create(base + "/api/whitelist/health"))
+            .header("X-API-Key", apiKey)
+            .build();
+        for (int i = 0; i < 120; i++) {
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("API did not start");
+    }
+    
+    /**
+     * Share of adds, removes and status reads, as {@code add=20,remove=10,status=70}.
+     */
+    static final class Mix {
+        
+        private final int add;
+        private final int remove;
+        private final int total;
+        
+        Mix(String spec) {
+            Map<String, Integer> weights = new HashMap<>();
+            for (String part : spec.split(",")) {
+                String[] pair = part.split("=");
+                weights.put(pair[0].trim(), Integer.parseInt(pair[1].trim()));
+            }
+            add = weights.getOrDefault("add", 0);
+            remove = weights.getOrDefault("remove", 0);
+            total = add + remove + weights.getOrDefault("status", 0);
+            if (total <= 0) {
+                throw new IllegalArgumentException("Empty request mix: " + spec);
+            }
+        }
+        
+        HttpRequest next(String base, String apiKey, int players) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int pick = random.nextInt(total);
+            String body = "{\"username\":\"load_" + random.nextInt(players) + "\"}";
+            
+            HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .header("X-API-Key", apiKey)
+                .timeout(Duration.ofSeconds(60));
+            if (pick < add) {
+                return builder.uri(URI.create(base + "/api/whitelist/add"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            }
+            if (pick < add + remove) {
+                return builder.uri(URI.create(base + "/api/whitelist/remove"))
+                    .header("Content-Type", "application/json")
+                    .method("DELETE", HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            }
+            return builder.uri(URI.create(base + "/api/whitelist/status")).GET().build();
+        }
+        
+        @Override
+        public String toString() {
+            return "add " + add + " / remove " + remove + " / status " + (total - add - remove);
+        }
+    }
+    
+    static final class Options {
+        
+        int rate = 200;
+        int durationSeconds = 30;
+        int warmupSeconds = 5;
+        Mix mix = new Mix("add=20,remove=10,status=70");
+        int players = 10_000;
+        int seedPlayers = 1000;
+        String url;
+        String apiKey = "loadtest";
+        int apiPort;
+        List<String> apiArgs = new ArrayList<>();
+        boolean serveRcon;
+        int rconPort;
+        String rconPassword = "loadtest";
+        long latencyMs = 10;
+        long jitterMs = 5;
+        int fragmentSize = 4096;
+        double failRate;
+        double stallRate;
+        long[] outage;
+        double maxErrorRate = -1;
+        long maxP99Ms = -1;
+        
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String name = args[i];
+                if (name.equals("--")) {
+                    options.apiArgs.addAll(Arrays.asList(args).subList(i + 1, args.length));
+                    break;
+                }
+                if (name.equals("--serve-rcon")) {
+                    options.serveRcon = true;
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + name);
+                }
+                String value = args[++i];
+                switch (name) {
+                    case "--rate" -> options.rate = Integer.parseInt(value);
+                    case "--duration" -> options.durationSeconds = Integer.parseInt(value);
+                    case "--warmup" -> options.warmupSeconds = Integer.parseInt(value);
+                    case "--mix" -> options.mix = new Mix(value);
+                    case "--players" -> options.players = Integer.parseInt(value);
+                    case "--seed-players" -> options.seedPlayers = Integer.parseInt(value);
+                    case "--url" -> options.url = value;
+                    case "--api-key" -> options.apiKey = value;
+                    case "--rcon-port" -> options.rconPort = Integer.parseInt(value);
+                    case "--rcon-password" -> options.rconPassword = value;
+                    case "--latency" -> options.latencyMs = Long.parseLong(value);
+                    case "--jitter" -> options.jitterMs = Long.parseLong(value);
+                    case "--fragment" -> options.fragmentSize = Integer.parseInt(value);
+                    case "--fail" -> options.failRate = Double.parseDouble(value);
+                    case "--stall" -> options.stallRate = Double.parseDouble(value);
+                    case "--outage" -> options.outage = Arrays.stream(value.split(":")).mapToLong(Long::parseLong).toArray();
+                    case "--max-error-rate" -> options.maxErrorRate = Double.parseDouble(value);
+                    case "--max-p99-ms" -> options.maxP99Ms = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + name);
+                }
+            }
+            if (options.rate < 1) {
+                throw new IllegalArgumentException("--rate must be at least 1");
+            }
+            return options;
+        }
+    }
+    
+    /**
+     * Source RCON server with an in-memory whitelist and fault injection.
+     */
+    static final class FakeRcon implements AutoCloseable {
+        
+        private static final int TYPE_RESPONSE = 0;
+        private static final int TYPE_COMMAND = 2;
+        private static final int TYPE_AUTH_RESPONSE = 2;
+        private static final int TYPE_AUTH = 3;
+        
+        final Set<String> whitelist = new ConcurrentSkipListSet<>(String.CASE_INSENSITIVE_ORDER);
+        final LongAdder commands = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        final LongAdder stalled = new LongAdder();
+        
+        private final Options options;
+        private final int port;
+        private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+        // One thread keeps replies in due-time order, which is what preserves per-connection ordering.
+        private final ScheduledExecutorService replies = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "fake-rcon-replies"));
+        private volatile ServerSocket server;
+        private volatile boolean down;
+        
+        FakeRcon(Options options) throws IOException {
+            this.options = options;
+            this.server = new ServerSocket(options.rconPort);
+            this.port = server.getLocalPort();
+            for (int i = 0; i < options.seedPlayers; i++) {
+                whitelist.add("seed_" + i);
+            }
+            daemon(() -> accept(server), "fake-rcon-accept").start();
+        }
+        
+        int port() {
+            return port;
+        }
+        
+        /**
+         * Simulates a server restart: closes every session and refuses
+         * connections for {@code lengthSeconds}.
+         */
+        void scheduleOutage(long startSeconds, long lengthSeconds) {
+            replies.schedule(() -> {
+                down = true;
+                closeQuietly(server);
+                clients.forEach(LoadTest::closeQuietly);
+                System.out.printf("[fake rcon] outage started for %d s%n", lengthSeconds);
+            }, startSeconds, TimeUnit.SECONDS);
+            replies.schedule(() -> {
+                try {
+                    ServerSocket reopened = new ServerSocket();
+                    reopened.setReuseAddress(true);
+                    reopened.bind(new InetSocketAddress(port));
+                    server = reopened;
+                    down = false;
+                    daemon(() -> accept(reopened), "fake-rcon-accept").start();
+                    System.out.println("[fake rcon] outage over");
+                } catch (IOException e) {
+                    System.out.println("[fake rcon] could not reopen port " + port + ": " + e.getMessage());
+                }
+            }, startSeconds + lengthSeconds, TimeUnit.SECONDS);
+        }
+        
+        private void accept(ServerSocket listener) {
+            while (!listener.isClosed()) {
+                try {
+                    Socket socket = listener.accept();
+                    socket.setTcpNoDelay(true);
+                    clients.add(socket);
+                    daemon(() -> serve(socket), "fake-rcon-conn").start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+        
+        private void serve(Socket socket) {
+            try (socket) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                OutputStream out = socket.getOutputStream();
+                AtomicLong lastDue = new AtomicLong();
+                boolean authenticated = false;
+                boolean stallSentinel = false;
+                
+                while (!down) {
+                    byte[] header = new byte[4];
+                    in.readFully(header);
+                    byte[] packet = new byte[ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt()];
+                    in.readFully(packet);
+                    ByteBuffer buffer = ByteBuffer.wrap(packet).order(ByteOrder.LITTLE_ENDIAN);
+                    int id = buffer.getInt();
+                    int type = buffer.getInt();
+                    String body = new String(packet, 8, packet.length - 10, StandardCharsets.UTF_8);
+                    
+                    if (type == TYPE_AUTH) {
+                        authenticated = body.equals(options.rconPassword);
+                        write(out, authenticated ? id : -1, TYPE_AUTH_RESPONSE, "");
+                    } else if (!authenticated) {
+                        return;
+                    } else if (type == TYPE_COMMAND) {
+                        commands.increment();
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        if (random.nextDouble() < options.failRate) {
+                            dropped.increment();
+                            return;
+                        }
+                        if (random.nextDouble() < options.stallRate) {
+                            stalled.increment();
+                            stallSentinel = true;
+                            continue;
+                        }
+                        String reply = execute(body);
+                        schedule(lastDue, () -> writeFragmented(out, id, reply));
+                    } else if (stallSentinel) {
+                        stallSentinel = false;
+                    } else {
+                        // The client's end-of-reply marker: answered after everything before it.
+                        schedule(lastDue, () -> write(out, id, TYPE_RESPONSE, ""));
+                    }
+                }
+            } catch (IOException e) {
+                // Client went away or the outage closed the socket
+            } finally {
+                clients.remove(socket);
+            }
+        }
+        
+        /**
+         * Delays a reply by latency plus jitter, but never ahead of an earlier
+         * reply on the same connection.
+         */
+        private void schedule(AtomicLong lastDue, Runnable reply) {
+            long jitter = options.jitterMs > 0 ? ThreadLocalRandom.current().nextLong(options.jitterMs + 1) : 0;
+            long wanted = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.latencyMs + jitter);
+            long due = lastDue.accumulateAndGet(wanted, Math::max);
+            replies.schedule(reply, due - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        
+        private String execute(String command) {
+            String[] parts = command.trim().split("\\s+");
+            if (parts.length == 3 && parts[0].equals("whitelist") && parts[1].equals("add")) {
+                return whitelist.add(parts[2]) ? "Added " + parts[2] + " to the whitelist" : "Player is already whitelisted";
+            }
+            if (parts.length == 3 && parts[0].equals("whitelist") && parts[1].equals("remove")) {
+                return whitelist.remove(parts[2]) ? "Removed " + parts[2] + " from the whitelist" : "Player is not whitelisted";
+            }
+            if (parts.length == 2 && parts[0].equals("whitelist") && parts[1].equals("reload")) {
+                return "Reloaded the whitelist";
+            }
+            if (parts.length == 2 && parts[0].equals("whitelist") && parts[1].equals("list")) {
+                if (whitelist.isEmpty()) {
+                    return "There are no whitelisted players";
+                }
+                List<String> names = new ArrayList<>(whitelist);
+                return "There are " + names.size() + " whitelisted player(s): " + String.join(", ", names);
+            }
+            return "Unknown or incomplete command, see below for error";
+        }
+        
+        private void writeFragmented(OutputStream out, int id, String reply) {
+            byte[] bytes = reply.getBytes(StandardCharsets.UTF_8);
+            int size = Math.max(1, options.fragmentSize);
+            int offset = 0;
+            do {
+                int length = Math.min(size, bytes.length - offset);
+                write(out, id, TYPE_RESPONSE, Arrays.copyOfRange(bytes, offset, offset + length));
+                offset += length;
+            } while (offset < bytes.length);
+        }
+        
+        private static void write(OutputStream out, int id, int type, String body) {
+            write(out, id, type, body.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        private static void write(OutputStream out, int id, int type, byte[] body) {
+            ByteBuffer packet = ByteBuffer.allocate(body.length + 14).order(ByteOrder.LITTLE_ENDIAN);
+            packet.putInt(body.length + 10).putInt(id).putInt(type).put(body).put((byte) 0).put((byte) 0);
+            synchronized (out) {
+                try {
+                    out.write(packet.array());
+                    out.flush();
+                } catch (IOException e) {
+                    // Client went away
+                }
+            }
+        }
+        
+        @Override
+        public void close() {
+            replies.shutdownNow();
+            closeQuietly(server);
+            clients.forEach(LoadTest::closeQuietly);
+        }
+    }
+    
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+    
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // Already closed
+        }
+    }
+}
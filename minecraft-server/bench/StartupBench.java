@@ -0,0 +1,132 @@
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long the API takes from launching the JVM to answering its
+ * first {@code /api/whitelist/health} with 200, which is how long the
+ * dashboard is down on every deploy.
+ * <p>
+ * Each variant is started {@code runs} times and the median, minimum and
+ * maximum are reported:
+ * <ul>
+ *   <li>{@code jar}: the packaged fat jar as built by {@code mvn package};</li>
+ *   <li>{@code jar+lazy}: the same with lazy bean initialization;</li>
+ *   <li>{@code aot+cds}: the {@code fast-startup} layout with Spring AOT and
+ *       the AppCDS archive from its training run;</li>
+ *   <li>{@code aot+cds+lazy}: both.</li>
+ * </ul>
+ * Variants whose artifacts are missing are skipped. RCON is disabled so the
+ * numbers do not depend on a Minecraft server.
+ * <p>
+ * Run from {@code minecraft-server/} after {@code mvn -Pfast-startup package}:
+ * <pre>
+ * java bench/StartupBench.java [runs=5]
+ * </pre>
+ */
+public class StartupBench {
+    
+    private static final Path JAR = Path.of("target/minecraft-whitelist-api-1.0.0.jar");
+    private static final Path FAST_DIR = Path.of("target/fast-startup");
+    private static final String API_KEY = "bench";
+    
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Path workDir = Files.createTempDirectory("startup-bench");
+        
+        System.out.printf("Time to first healthy response, %d runs each, Java %s%n%n", runs, Runtime.version());
+        System.out.printf("%-14s %10s %10s %10s%n", "variant", "median ms", "min ms", "max ms");
+        
+        boolean fatJar = Files.exists(JAR);
+        boolean fast = Files.exists(FAST_DIR.resolve("minecraft-whitelist-api.jar"))
+            && Files.exists(FAST_DIR.resolve("app.jsa"));
+        
+        List<String> plain = List.of(java, "-jar", JAR.toAbsolutePath().toString());
+        List<String> aotCds = List.of(java, "-XX:SharedArchiveFile=app.jsa", "-Xlog:cds=off",
+            "-Dspring.aot.enabled=true", "-jar", "minecraft-whitelist-api.jar");
+        
+        run("jar", fatJar, plain, Path.of("."), false, workDir, runs);
+        run("jar+lazy", fatJar, plain, Path.of("."), true, workDir, runs);
+        run("aot+cds", fast, aotCds, FAST_DIR, false, workDir, runs);
+        run("aot+cds+lazy", fast, aotCds, FAST_DIR, true, workDir, runs);
+    }
+    
+    private static void run(String variant, boolean available, List<String> launch, Path directory, boolean lazy,
+                            Path workDir, int runs) throws Exception {
+        if (!available) {
+            System.out.printf("%-14s skipped: run %s first%n", variant,
+                variant.startsWith("aot") ? "mvn -Pfast-startup package" : "mvn package");
+            return;
+        }
+        
+        long[] millis = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            millis[i] = startOnce(launch, directory, lazy, workDir);
+        }
+        Arrays.sort(millis);
+        System.out.printf("%-14s %10d %10d %10d%n", variant, millis[runs / 2], millis[0], millis[runs - 1]);
+    }
+    
+    private static long startOnce(List<String> launch, Path directory, boolean lazy, Path workDir) throws Exception {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        
+        List<String> command = new ArrayList<>(launch);
+        command.addAll(List.of(
+            "--server.port=" + port,
+            "--spring.main.lazy-initialization=" + lazy,
+            "--minecraft.server.api-key=" + API_KEY,
+            "--minecraft.server.rcon.enabled=false",
+            "--minecraft.server.rcon.password=bench",
+            "--minecraft.server.audit.directory=" + workDir.resolve("audit"),
+            "--minecraft.server.identity.cache-file=",
+            "--logging.level.com.whitelisthub=WARN"));
+        ProcessBuilder builder = new ProcessBuilder(command).directory(directory.toFile());
+        builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+        HttpRequest health = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/api/whitelist/health"))
+            .header("X-API-Key", API_KEY)
+            .build();
+        
+        long started = System.nanoTime();
+        Process api = builder.start();
+        try {
+            long deadline = started + TimeUnit.SECONDS.toNanos(120);
+            while (System.nanoTime() < deadline) {
+                if (!api.isAlive()) {
+                    throw new IllegalStateException("API exited with " + api.exitValue());
+                }
+                try {
+                    if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                    }
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(5);
+            }
+            throw new IllegalStateException("API did not start");
+        } finally {
+            api.destroy();
+            api.waitFor(10, TimeUnit.SECONDS);
+        }
+    }
+}
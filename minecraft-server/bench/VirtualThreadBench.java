@@ -0,0 +1,282 @@
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many whitelist requests the API keeps in flight when RCON is
+ * slow, once on Tomcat's platform-thread pool and once on virtual threads.
+ * <p>
+ * Starts an RCON stand-in that answers every command after a fixed delay,
+ * launches the packaged API against it in each mode, fires a burst of
+ * concurrent {@code /add} requests and reports throughput, latency and how
+ * many requests the server held open at once (throughput x RCON delay, since
+ * each request spends at least that long in the server). The virtual thread
+ * run needs Java 21 and is skipped on older runtimes.
+ * <p>
+ * Run from {@code minecraft-server/} after {@code mvn package}:
+ * <pre>
+ * java bench/VirtualThreadBench.java [requests=2000] [rconDelayMs=500] [tomcatThreads=200]
+ * </pre>
+ */
+public class VirtualThreadBench {
+    
+    private static final Path JAR = Path.of("target/minecraft-whitelist-api-1.0.0.jar");
+    private static final String API_KEY = "bench";
+    private static final String RCON_PASSWORD = "bench";
+    
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long delayMs = args.length > 1 ? Long.parseLong(args[1]) : 500;
+        int tomcatThreads = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        
+        if (!Files.exists(JAR)) {
+            System.err.println("Missing " + JAR + "; run mvn package first");
+            System.exit(1);
+        }
+        
+        try (SlowRcon rcon = new SlowRcon(delayMs)) {
+            System.out.printf("%d concurrent requests, RCON reply delay %d ms, %d Tomcat threads%n%n",
+                requests, delayMs, tomcatThreads);
+            System.out.printf("%-9s %9s %9s %9s %9s %9s%n", "mode", "wall ms", "req/s", "p50 ms", "p99 ms", "in flight");
+            
+            run("platform", false, rcon.port(), requests, tomcatThreads, delayMs);
+            if (Runtime.version().feature() >= 21) {
+                run("virtual", true, rcon.port(), requests, tomcatThreads, delayMs);
+            } else {
+                System.out.printf("%-9s skipped: needs Java 21, running on %s%n", "virtual", Runtime.version());
+            }
+        }
+    }
+    
+    private static void run(String mode, boolean virtual, int rconPort, int requests, int tomcatThreads, long delayMs)
+            throws Exception {
+        int apiPort;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            apiPort = probe.getLocalPort();
+        }
+        
+        ProcessBuilder builder = new ProcessBuilder(
+            Path.of(System.getProperty("java.home"), "bin", "java").toString(), "-jar", JAR.toString(),
+            "--server.port=" + apiPort,
+            "--server.tomcat.threads.max=" + tomcatThreads,
+            "--server.tomcat.accept-count=" + requests,
+            "--server.tomcat.max-connections=" + (requests * 2),
+            "--spring.threads.virtual.enabled=" + virtual,
+            "--minecraft.server.api-key=" + API_KEY,
+            "--minecraft.server.rcon.host=127.0.0.1",
+            "--minecraft.server.rcon.port=" + rconPort,
+            "--minecraft.server.rcon.password=" + RCON_PASSWORD,
+            "--minecraft.server.rcon.timeout-ms=120000",
+            "--minecraft.server.rcon.pool-size=8",
+            "--minecraft.server.rcon.max-in-flight=256",
+            "--minecraft.server.rcon.pool-max-wait-ms=120000",
+            "--minecraft.server.rate-limit.enabled=false",
+            "--logging.level.com.whitelisthub=WARN");
+        builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        Process api = builder.start();
+        
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+            String base = "http://127.0.0.1:" + apiPort + "/api/whitelist";
+            awaitHealthy(client, base);
+            
+            fire(client, base, mode + "w", Math.min(requests, 100));
+            
+            long started = System.nanoTime();
+            long[] latencies = fire(client, base, mode, requests);
+            long wallNanos = System.nanoTime() - started;
+            
+            Arrays.sort(latencies);
+            double seconds = wallNanos / 1e9;
+            double throughput = latencies.length / seconds;
+            System.out.printf("%-9s %9d %9.0f %9d %9d %9.0f%n", mode,
+                TimeUnit.NANOSECONDS.toMillis(wallNanos), throughput,
+                TimeUnit.NANOSECONDS.toMillis(percentile(latencies, 0.50)),
+                TimeUnit.NANOSECONDS.toMillis(percentile(latencies, 0.99)),
+                throughput * delayMs / 1000.0);
+        } finally {
+            api.destroy();
+            api.waitFor(10, TimeUnit.SECONDS);
+        }
+    }
+    
+    private static void awaitHealthy(HttpClient client, String base) throws InterruptedException {
+        HttpRequest health = HttpRequest.newBuilder(URI.create(base + "/health"))
+            .header("X-API-Key", API_KEY)
+            .build();
+        for (int i = 0; i < 120; i++) {
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("API did not start");
+    }
+    
+    private static long[] fire(HttpClient client, String base, String prefix, int count) {
+        List<CompletableFuture<Long>> calls = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String body = "{\"username\":\"" + prefix + i + "\"}";
+            HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/add"))
+                .header("X-API-Key", API_KEY)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofMinutes(2))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+            
+            long sent = System.nanoTime();
+            calls.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenApply(response -> {
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException("HTTP " + response.statusCode());
+                    }
+                    return System.nanoTime() - sent;
+                }));
+        }
+        
+        long[] latencies = new long[count];
+        for (int i = 0; i < count; i++) {
+            latencies[i] = calls.get(i).join();
+        }
+        return latencies;
+    }
+    
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+    
+    /**
+     * Minimal RCON server that authenticates any client with the bench
+     * password and answers each command, and the empty packet following it,
+     * after a fixed delay. Commands are answered concurrently, like a server
+     * whose latency comes from the network rather than its tick loop.
+     */
+    static final class SlowRcon implements AutoCloseable {
+        
+        private final long delayMs;
+        private final ServerSocket server = new ServerSocket(0);
+        private final ScheduledExecutorService replies = Executors.newScheduledThreadPool(4);
+        
+        SlowRcon(long delayMs) throws IOException {
+            this.delayMs = delayMs;
+            Thread acceptor = new Thread(this::accept, "slow-rcon");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+        
+        int port() {
+            return server.getLocalPort();
+        }
+        
+        private void accept() {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    Thread reader = new Thread(() -> serve(socket), "slow-rcon-conn");
+                    reader.setDaemon(true);
+                    reader.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+        
+        private void serve(Socket socket) {
+            try (socket) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                OutputStream out = socket.getOutputStream();
+                int commandId = 0;
+                String reply = null;
+                
+                while (true) {
+                    byte[] header = new byte[4];
+                    in.readFully(header);
+                    byte[] packet = new byte[ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt()];
+                    in.readFully(packet);
+                    ByteBuffer buffer = ByteBuffer.wrap(packet).order(ByteOrder.LITTLE_ENDIAN);
+                    int id = buffer.getInt();
+                    int type = buffer.getInt();
+                    String body = new String(packet, 8, packet.length - 10, StandardCharsets.UTF_8);
+                    
+                    if (type == 3) {
+                        write(out, body.equals(RCON_PASSWORD) ? id : -1, 2, "");
+                    } else if (type == 2) {
+                        commandId = id;
+                        reply = reply(body);
+                    } else if (reply != null) {
+                        int replyId = commandId;
+                        String replyBody = reply;
+                        int sentinelId = id;
+                        reply = null;
+                        replies.schedule(() -> {
+                            write(out, replyId, 0, replyBody);
+                            write(out, sentinelId, 0, "");
+                        }, delayMs, TimeUnit.MILLISECONDS);
+                    } else {
+                        write(out, id, 0, "");
+                    }
+                }
+            } catch (IOException e) {
+                // Client went away
+            }
+        }
+        
+        private static String reply(String command) {
+            String[] parts = command.split(" ");
+            if (parts.length == 3 && parts[1].equals("add")) {
+                return "Added " + parts[2] + " to the whitelist";
+            }
+            if (parts.length == 3 && parts[1].equals("remove")) {
+                return "Removed " + parts[2] + " from the whitelist";
+            }
+            return "There are no whitelisted players";
+        }
+        
+        private static void write(OutputStream out, int id, int type, String body) {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer packet = ByteBuffer.allocate(bytes.length + 14).order(ByteOrder.LITTLE_ENDIAN);
+            packet.putInt(bytes.length + 10).putInt(id).putInt(type).put(bytes).put((byte) 0).put((byte) 0);
+            synchronized (out) {
+                try {
+                    out.write(packet.array());
+                    out.flush();
+                } catch (IOException e) {
+                    // Client went away
+                }
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            replies.shutdownNow();
+            server.close();
+        }
+    }
+}
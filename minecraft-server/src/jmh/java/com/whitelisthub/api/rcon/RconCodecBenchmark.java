@@ -0,0 +1,64 @@
+package com.whitelisthub.api.rcon;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packet encoding and decoding on the RCON I/O path. {@code encode} writes a
+ * whitelist command and its sentinel, as every pipelined command does;
+ * {@code decode} frames a reply of {@code replyLength} bytes followed by the
+ * sentinel's empty reply.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RconCodecBenchmark {
+    
+    @Param({"32", "1024", "4000"})
+    private int replyLength;
+    
+    private final ByteBuffer out = ByteBuffer.allocateDirect(16 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer in = ByteBuffer.allocateDirect(16 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    private RconConnection.PacketSink sink;
+    
+    @Setup
+    public void setup(Blackhole blackhole) throws IOException {
+        sink = (buffer, requestId, type, bodyOffset, bodyLength) -> blackhole.consume(requestId + bodyLength);
+        
+        RconConnection.encode(in, 1, RconConnection.TYPE_RESPONSE, "x".repeat(replyLength));
+        RconConnection.encode(in, 2, RconConnection.TYPE_RESPONSE, "");
+        in.flip();
+    }
+    
+    @Benchmark
+    public ByteBuffer encode() throws IOException {
+        out.clear();
+        RconConnection.encode(out, 1, RconConnection.TYPE_COMMAND, "whitelist add Player_1234");
+        return RconConnection.encode(out, 2, RconConnection.TYPE_RESPONSE, "");
+    }
+    
+    @Benchmark
+    public int decode() throws IOException {
+        in.position(0);
+        RconConnection.decode(in, sink);
+        return in.position();
+    }
+}
@@ -0,0 +1,87 @@
+package com.whitelisthub.api.security;
+
+import com.whitelisthub.api.config.ServerConfig;
+import com.whitelisthub.api.service.ClusterService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limiting under contention from four threads: every thread on one
+ * client's bucket, threads spread over many clients, and the whole filter
+ * in front of a no-op chain. Limits are high enough that requests are
+ * admitted, which is the common path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class RateLimitBenchmark {
+    
+    private static final int CLIENTS = 1024;
+    private static final FilterChain CHAIN = (request, response) -> { };
+    
+    private final String[] clients = new String[CLIENTS];
+    private RateLimiter limiter;
+    private RateLimitFilter filter;
+    
+    @Setup
+    public void setup() {
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = "10.0." + (i >> 8) + "." + (i & 0xff);
+        }
+        limiter = new RateLimiter(1_000_000, 1_000_000_000, 100_000);
+        
+        ServerConfig config = new ServerConfig();
+        config.getRateLimit().setCapacity(1_000_000);
+        config.getRateLimit().setRefillPerMinute(1_000_000_000);
+        filter = new RateLimitFilter(config, new ClusterService(config));
+        filter.init();
+    }
+    
+    @State(Scope.Thread)
+    public static class Request {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/whitelist/status");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        
+        @Setup
+        public void setup() {
+            request.setRemoteAddr("10.1.0." + ThreadLocalRandom.current().nextInt(256));
+        }
+    }
+    
+    @Benchmark
+    public long sameClient() {
+        return limiter.tryAcquire(clients[0]);
+    }
+    
+    @Benchmark
+    public long manyClients() {
+        return limiter.tryAcquire(clients[ThreadLocalRandom.current().nextInt(CLIENTS)]);
+    }
+    
+    @Benchmark
+    public int filter(Request state) throws ServletException, IOException {
+        filter.doFilter(state.request, state.response, CHAIN);
+        return state.response.getStatus();
+    }
+}
@@ -0,0 +1,58 @@
+package com.whitelisthub.api.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Membership and prefix lookups against a cached snapshot, as served by
+ * {@code /contains} and {@code /search}. The name looked up differs in case
+ * from the stored one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WhitelistLookupBenchmark {
+    
+    @Param({"100", "10000", "100000"})
+    private int size;
+    
+    private WhitelistNames names;
+    private String present;
+    private String prefix;
+    
+    @Setup
+    public void setup() {
+        WhitelistNames.Builder builder = new WhitelistNames.Builder(size * 12);
+        for (int i = 0; i < size; i++) {
+            builder.add("Player_" + i);
+        }
+        names = builder.build().sortedIgnoreCase();
+        present = "PLAYER_" + (size / 2);
+        prefix = "player_" + (size / 20);
+    }
+    
+    @Benchmark
+    public boolean contains() {
+        return names.indexOfIgnoreCase(present) >= 0;
+    }
+    
+    @Benchmark
+    public List<String> searchPrefix() {
+        return names.withPrefix(prefix, 25);
+    }
+}
@@ -0,0 +1,72 @@
+package com.whitelisthub.api.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a {@code whitelist list} reply into usernames, from a handful of
+ * players up to a very large server. The reply sits in a direct buffer cut
+ * into 4096-byte packet bodies, the way the server sends it, and is fed to
+ * the parser one body at a time as the RCON I/O thread does.
+ * {@code parseAndSort} adds the case-insensitive sort the cache needs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WhitelistParseBenchmark {
+    
+    @Param({"10", "100", "1000", "10000", "100000"})
+    private int size;
+    
+    private static final int MAX_BODY = 4096;
+    
+    private ByteBuffer reply;
+    
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder("There are ").append(size).append(" whitelisted player(s): ");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append("Player_").append(i);
+        }
+        byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+        reply = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    }
+    
+    @Benchmark
+    public WhitelistNames parseWhitelistList() {
+        return parse();
+    }
+    
+    @Benchmark
+    public WhitelistNames parseAndSort() {
+        return parse().sortedIgnoreCase();
+    }
+    
+    private WhitelistNames parse() {
+        WhitelistListParser parser = new WhitelistListParser();
+        int length = reply.limit();
+        for (int offset = 0; offset < length; offset += MAX_BODY) {
+            parser.accept(reply, offset, Math.min(MAX_BODY, length - offset));
+        }
+        return parser.finish();
+    }
+}
@@ -0,0 +1,9 @@
+package com.whitelisthub.api.audit;
+
+/**
+ * One audited API call. {@code timestamp} is in epoch milliseconds;
+ * {@code username} is {@code null} for calls that do not target a player and
+ * {@code error} is {@code null} on success.
+ */
+public record AuditEvent(long timestamp, String action, String username, String ip, boolean success,
+                         String error) {}
@@ -0,0 +1,79 @@
+package com.whitelisthub.api.audit;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded multi-producer, single-consumer queue on a fixed array. {@link #offer}
+ * never blocks or allocates: when the buffer is full the element is refused,
+ * so a stalled consumer cannot slow producers down.
+ */
+public class AuditRingBuffer<T> {
+    
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    // Next slot to consume; written only by the consumer
+    private final AtomicLong head = new AtomicLong();
+    // Next slot to claim
+    private final AtomicLong tail = new AtomicLong();
+    
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public AuditRingBuffer(int capacity) {
+        int size = Integer.bitCount(capacity) == 1 ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+    
+    /**
+     * Adds {@code element}, or returns {@code false} straight away if the
+     * buffer is full.
+     */
+    public boolean offer(T element) {
+        while (true) {
+            long claim = tail.get();
+            if (claim - head.get() >= slots.length()) {
+                return false;
+            }
+            if (tail.compareAndSet(claim, claim + 1)) {
+                slots.set((int) claim & mask, element);
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Moves up to {@code max} elements into {@code sink}, oldest first. Stops
+     * early at a slot that has been claimed but not yet filled. Must only be
+     * called from one thread.
+     */
+    public int drainTo(Collection<? super T> sink, int max) {
+        long next = head.get();
+        long end = tail.get();
+        int drained = 0;
+        while (next < end && drained < max) {
+            int index = (int) next & mask;
+            T element = slots.get(index);
+            if (element == null) {
+                break;
+            }
+            // Cleared before head moves past it, so a producer never sees the old element
+            slots.set(index, null);
+            sink.add(element);
+            next++;
+            drained++;
+        }
+        head.set(next);
+        return drained;
+    }
+    
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+    
+    public int capacity() {
+        return slots.length();
+    }
+}
@@ -0,0 +1,224 @@
+package com.whitelisthub.api.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * One append-only journal file of newline-delimited JSON events, and its
+ * index: the time range it covers, the actions it contains and a Bloom filter
+ * of its usernames. Queries check the index first and only open segments that
+ * can match. A sealed segment's index is saved next to it as {@code .idx}; a
+ * missing or stale index is rebuilt from the file.
+ */
+public class AuditSegment {
+    
+    private static final int INDEX_MAGIC = 0x41554458;
+    private static final int BLOOM_BITS = 1 << 16;
+    private static final int BLOOM_HASHES = 3;
+    
+    private final Path file;
+    
+    // Guarded by this
+    private long minTimestamp = Long.MAX_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
+    private long count;
+    private long length;
+    private final Set<String> actions = new HashSet<>();
+    private final long[] usernames = new long[BLOOM_BITS / 64];
+    
+    public AuditSegment(Path file) {
+        this.file = file;
+    }
+    
+    /**
+     * Opens an existing segment, loading its saved index when it still
+     * covers the whole file and rebuilding it otherwise.
+     */
+    public static AuditSegment open(Path file, ObjectMapper objectMapper) throws IOException {
+        long size = Files.size(file);
+        AuditSegment segment = new AuditSegment(file);
+        if (!segment.loadIndex(size)) {
+            // Start from an empty index; a failed load may have filled part of it
+            segment = new AuditSegment(file);
+            for (AuditEvent event : segment.read(objectMapper, event -> true)) {
+                segment.add(event);
+            }
+            segment.length = size;
+            segment.saveIndex();
+        }
+        return segment;
+    }
+    
+    public Path getFile() {
+        return file;
+    }
+    
+    public Path getIndexFile() {
+        return file.resolveSibling(file.getFileName() + ".idx");
+    }
+    
+    /**
+     * Records events that have just been appended to the file, together
+     * taking {@code bytes}.
+     */
+    public synchronized void append(List<AuditEvent> events, long bytes) {
+        for (AuditEvent event : events) {
+            add(event);
+        }
+        length += bytes;
+    }
+    
+    private synchronized void add(AuditEvent event) {
+        minTimestamp = Math.min(minTimestamp, event.timestamp());
+        maxTimestamp = Math.max(maxTimestamp, event.timestamp());
+        count++;
+        if (event.action() != null) {
+            actions.add(event.action());
+        }
+        if (event.username() != null) {
+            long hash = hash(event.username());
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = bit(hash, i);
+                usernames[bit >>> 6] |= 1L << bit;
+            }
+        }
+    }
+    
+    /**
+     * Returns {@code false} when no event in this segment can match; a
+     * {@code null} filter matches anything.
+     */
+    public synchronized boolean mightContain(String username, String action, long from, long to) {
+        if (count == 0 || maxTimestamp < from || minTimestamp > to) {
+            return false;
+        }
+        if (action != null && !actions.contains(action)) {
+            return false;
+        }
+        if (username != null) {
+            long hash = hash(username);
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = bit(hash, i);
+                if ((usernames[bit >>> 6] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    public synchronized long length() {
+        return length;
+    }
+    
+    public synchronized long count() {
+        return count;
+    }
+    
+    /**
+     * Reads the events matching {@code filter} in file order. A line that
+     * does not parse, such as the tail of a write still in progress, is
+     * skipped.
+     */
+    public List<AuditEvent> read(ObjectMapper objectMapper, Predicate<AuditEvent> filter) throws IOException {
+        List<AuditEvent> found = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                AuditEvent event;
+                try {
+                    event = objectMapper.readValue(line, AuditEvent.class);
+                } catch (IOException e) {
+                    continue;
+                }
+                if (filter.test(event)) {
+                    found.add(event);
+                }
+            }
+        }
+        return found;
+    }
+    
+    public synchronized void saveIndex() throws IOException {
+        Path index = getIndexFile();
+        Path temp = Files.createTempFile(index.getParent(), index.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeLong(length);
+            out.writeLong(count);
+            out.writeLong(minTimestamp);
+            out.writeLong(maxTimestamp);
+            out.writeInt(actions.size());
+            for (String action : actions) {
+                out.writeUTF(action);
+            }
+            for (long word : usernames) {
+                out.writeLong(word);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private synchronized boolean loadIndex(long fileSize) {
+        Path index = getIndexFile();
+        if (!Files.exists(index)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(index))) {
+            if (in.readInt() != INDEX_MAGIC || in.readLong() != fileSize) {
+                return false;
+            }
+            count = in.readLong();
+            minTimestamp = in.readLong();
+            maxTimestamp = in.readLong();
+            int actionCount = in.readInt();
+            for (int i = 0; i < actionCount; i++) {
+                actions.add(in.readUTF());
+            }
+            for (int i = 0; i < usernames.length; i++) {
+                usernames[i] = in.readLong();
+            }
+            length = fileSize;
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    private static long hash(String username) {
+        // fmix64 from MurmurHash3 over the case-insensitive String hash
+        long h = username.toLowerCase(Locale.ROOT).hashCode();
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+    
+    private static int bit(long hash, int i) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return (h1 + i * h2) & (BLOOM_BITS - 1);
+    }
+}
@@ -0,0 +1,202 @@
+package com.whitelisthub.api.cluster;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wire format of the messages cluster nodes exchange over UDP. Every datagram
+ * carries the sender's id, a per-sender sequence number and a timestamp, and
+ * ends in an HMAC-SHA256 over the rest keyed with the shared secret, so
+ * nodes without the secret can neither forge nor alter messages.
+ * <p>
+ * Encoding and decoding each keep their own {@link Mac}: call the encoders
+ * from one thread and {@link #decode} from one (possibly different) thread.
+ */
+public class ClusterProtocol {
+    
+    /**
+     * Largest datagram sent, small enough to avoid IP fragmentation on
+     * common networks.
+     */
+    public static final int MAX_DATAGRAM = 1400;
+    
+    private static final int MAGIC = 0x574c4331;
+    private static final int HEADER_LENGTH = 4 + 1 + 8 + 8 + 8;
+    private static final int MAC_LENGTH = 32;
+    private static final byte HEARTBEAT = 1;
+    private static final byte RATE = 2;
+    
+    private final long sender;
+    private final Mac signer;
+    private final Mac verifier;
+    private long sequence;
+    
+    public ClusterProtocol(long sender, String secret) {
+        this.sender = sender;
+        try {
+            SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+            this.signer = Mac.getInstance("HmacSHA256");
+            this.signer.init(key);
+            this.verifier = Mac.getInstance("HmacSHA256");
+            this.verifier.init(key);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+    
+    /**
+     * Announces this node and how many whitelist writes it has made on each
+     * server since it started.
+     */
+    public byte[] heartbeat(String node, Map<String, Long> writes) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = header(bytes, HEARTBEAT);
+            out.writeUTF(node);
+            out.writeShort(writes.size());
+            for (Map.Entry<String, Long> entry : writes.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+            return sign(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Tokens taken from {@code limiter} on this node since the last report,
+     * split over as many datagrams as needed.
+     */
+    public List<byte[]> rateDeltas(String limiter, Map<String, Integer> tokens) {
+        List<byte[]> datagrams = new ArrayList<>();
+        List<Map.Entry<String, Integer>> pending = new ArrayList<>(tokens.entrySet());
+        int start = 0;
+        try {
+            while (start < pending.size()) {
+                ByteArrayOutputStream body = new ByteArrayOutputStream(MAX_DATAGRAM);
+                DataOutputStream entries = new DataOutputStream(body);
+                int used = HEADER_LENGTH + 2 + limiter.length() * 3 + 2 + MAC_LENGTH;
+                int end = start;
+                while (end < pending.size()) {
+                    Map.Entry<String, Integer> entry = pending.get(end);
+                    int size = 2 + entry.getKey().length() * 3 + 4;
+                    if (end > start && used + size > MAX_DATAGRAM) {
+                        break;
+                    }
+                    entries.writeUTF(entry.getKey());
+                    entries.writeInt(entry.getValue());
+                    used += size;
+                    end++;
+                }
+                
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(used);
+                DataOutputStream out = header(bytes, RATE);
+                out.writeUTF(limiter);
+                out.writeShort(end - start);
+                body.writeTo(out);
+                datagrams.add(sign(bytes));
+                start = end;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return datagrams;
+    }
+    
+    /**
+     * Checks the signature and parses one datagram. Throws
+     * {@link IOException} for anything malformed or not signed with our
+     * secret.
+     */
+    public Message decode(byte[] data, int length) throws IOException {
+        if (length < HEADER_LENGTH + MAC_LENGTH) {
+            throw new IOException("Datagram too short");
+        }
+        verifier.update(data, 0, length - MAC_LENGTH);
+        byte[] expected = verifier.doFinal();
+        if (!MessageDigest.isEqual(expected, Arrays.copyOfRange(data, length - MAC_LENGTH, length))) {
+            throw new IOException("Bad signature");
+        }
+        
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 0, length - MAC_LENGTH));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a cluster message");
+        }
+        byte type = in.readByte();
+        long from = in.readLong();
+        long seq = in.readLong();
+        long timestamp = in.readLong();
+        
+        switch (type) {
+            case HEARTBEAT -> {
+                String node = in.readUTF();
+                int count = in.readUnsignedShort();
+                Map<String, Long> writes = new LinkedHashMap<>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    writes.put(in.readUTF(), in.readLong());
+                }
+                return new Heartbeat(from, seq, timestamp, node, writes);
+            }
+            case RATE -> {
+                String limiter = in.readUTF();
+                int count = in.readUnsignedShort();
+                Map<String, Integer> tokens = new HashMap<>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    tokens.merge(in.readUTF(), in.readInt(), Integer::sum);
+                }
+                return new RateDelta(from, seq, timestamp, limiter, tokens);
+            }
+            default -> throw new IOException("Unknown message type " + type);
+        }
+    }
+    
+    public long getSender() {
+        return sender;
+    }
+    
+    private DataOutputStream header(ByteArrayOutputStream bytes, byte type) throws IOException {
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeByte(type);
+        out.writeLong(sender);
+        out.writeLong(++sequence);
+        out.writeLong(System.currentTimeMillis());
+        return out;
+    }
+    
+    private byte[] sign(ByteArrayOutputStream bytes) {
+        byte[] mac = signer.doFinal(bytes.toByteArray());
+        bytes.writeBytes(mac);
+        return bytes.toByteArray();
+    }
+    
+    public sealed interface Message permits Heartbeat, RateDelta {
+        long sender();
+        
+        long sequence();
+        
+        long timestamp();
+    }
+    
+    public record Heartbeat(long sender, long sequence, long timestamp, String node, Map<String, Long> writes)
+            implements Message {}
+    
+    public record RateDelta(long sender, long sequence, long timestamp, String limiter, Map<String, Integer> tokens)
+            implements Message {}
+}
@@ -0,0 +1,142 @@
+package com.whitelisthub.api.config;
+
+import com.whitelisthub.api.rcon.RconCircuitBreaker;
+import com.whitelisthub.api.rcon.RconConnectionPool;
+import com.whitelisthub.api.rcon.RconPriority;
+import com.whitelisthub.api.security.ApiKeyAuthFilter;
+import com.whitelisthub.api.security.RateLimitFilter;
+import com.whitelisthub.api.service.AuditService;
+import com.whitelisthub.api.service.ClusterService;
+import com.whitelisthub.api.service.IdentityService;
+import com.whitelisthub.api.service.RconService;
+import com.whitelisthub.api.service.WhitelistBackend;
+import com.whitelisthub.api.service.WhitelistEventService;
+import com.whitelisthub.api.service.WhitelistService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Exposes the counters the services already keep as Prometheus meters. RCON
+ * timings and error counts are registered by {@link RconService}; request
+ * latency histograms come from Spring's {@code http.server.requests}.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfig {
+    
+    @Bean
+    public MeterBinder whitelistMetrics(RconService rconService, WhitelistService whitelistService,
+                                        IdentityService identityService, AuditService auditService,
+                                        ClusterService clusterService, RateLimitFilter rateLimitFilter,
+                                        ApiKeyAuthFilter apiKeyAuthFilter, WhitelistEventService eventService) {
+        return registry -> {
+            for (WhitelistBackend backend : whitelistService.getBackends()) {
+                Gauge.builder("whitelist.size", backend, b -> {
+                        int count = b.getCache().getSize();
+                        return count < 0 ? Double.NaN : count;
+                    })
+                    .description("Whitelisted players in the cached snapshot")
+                    .tag("server", backend.getName())
+                    .register(registry);
+            }
+            FunctionCounter.builder("whitelist.cache.hits", whitelistService, WhitelistService::getCacheHits)
+                .register(registry);
+            FunctionCounter.builder("whitelist.cache.misses", whitelistService, WhitelistService::getCacheMisses)
+                .register(registry);
+            FunctionCounter.builder("whitelist.writes.merged", whitelistService, WhitelistService::getWritesMerged)
+                .register(registry);
+            FunctionCounter.builder("whitelist.writes.superseded", whitelistService, WhitelistService::getWritesSuperseded)
+                .register(registry);
+            
+            rconService.getPools().forEach((server, pool) -> {
+                Gauge.builder("rcon.pool.open", pool, RconConnectionPool::getOpenCount)
+                    .tag("server", server)
+                    .register(registry);
+                Gauge.builder("rcon.pool.in.flight", pool, RconConnectionPool::getInFlightCount)
+                    .tag("server", server)
+                    .register(registry);
+                for (RconPriority priority : RconPriority.values()) {
+                    Gauge.builder("rcon.pool.waiting", pool, p -> p.getWaitingCount(priority))
+                        .description("RCON commands queued for a slot")
+                        .tag("priority", priority.tag())
+                        .tag("server", server)
+                        .register(registry);
+                }
+                Gauge.builder("rcon.concurrency.limit", pool, RconConnectionPool::getConcurrencyLimit)
+                    .tag("server", server)
+                    .register(registry);
+                Gauge.builder("rcon.timeout", pool, p -> p.getCommandTimeoutMs() / 1000.0)
+                    .description("Current adaptive RCON command timeout")
+                    .baseUnit("seconds")
+                    .tag("server", server)
+                    .register(registry);
+                for (RconCircuitBreaker.State state : RconCircuitBreaker.State.values()) {
+                    Gauge.builder("rcon.breaker.state", pool, p -> p.getBreakerState() == state ? 1 : 0)
+                        .tag("state", state.name().toLowerCase())
+                        .tag("server", server)
+                        .register(registry);
+                }
+            });
+            
+            Gauge.builder("identity.cache.size", identityService, IdentityService::getCacheSize)
+                .register(registry);
+            FunctionCounter.builder("identity.cache.hits", identityService, IdentityService::getCacheHits)
+                .register(registry);
+            FunctionCounter.builder("identity.cache.misses", identityService, IdentityService::getCacheMisses)
+                .register(registry);
+            FunctionCounter.builder("identity.lookups", identityService, IdentityService::getLookupCount)
+                .description("Batched profile lookups sent upstream")
+                .register(registry);
+            FunctionCounter.builder("identity.lookup.failures", identityService, IdentityService::getLookupFailures)
+                .register(registry);
+            
+            FunctionCounter.builder("audit.events.written", auditService, AuditService::getWrittenCount)
+                .register(registry);
+            FunctionCounter.builder("audit.events.dropped", auditService, AuditService::getDroppedCount)
+                .description("Audit events refused because the buffer was full")
+                .register(registry);
+            FunctionCounter.builder("audit.write.failures", auditService, AuditService::getWriteFailures)
+                .register(registry);
+            Gauge.builder("audit.buffered", auditService, AuditService::getBufferedCount)
+                .register(registry);
+            Gauge.builder("audit.segments", auditService, AuditService::getSegmentCount)
+                .register(registry);
+            
+            Gauge.builder("whitelist.events.subscribers", eventService, WhitelistEventService::getSubscriberCount)
+                .register(registry);
+            FunctionCounter.builder("whitelist.events.sent", eventService, WhitelistEventService::getSentCount)
+                .register(registry);
+            FunctionCounter.builder("whitelist.events.dropped", eventService, WhitelistEventService::getDroppedCount)
+                .description("Event subscribers disconnected for falling too far behind")
+                .register(registry);
+            
+            if (clusterService.isEnabled()) {
+                Gauge.builder("cluster.peers.alive", clusterService, ClusterService::getAlivePeerCount)
+                    .register(registry);
+                FunctionCounter.builder("cluster.messages.sent", clusterService, ClusterService::getSentCount)
+                    .register(registry);
+                FunctionCounter.builder("cluster.messages.received", clusterService, ClusterService::getReceivedCount)
+                    .register(registry);
+                FunctionCounter.builder("cluster.messages.rejected", clusterService, ClusterService::getRejectedCount)
+                    .description("Cluster datagrams with a bad signature, stale timestamp or replayed sequence")
+                    .register(registry);
+                FunctionCounter.builder("cluster.invalidations", clusterService, ClusterService::getInvalidationCount)
+                    .description("Cached whitelists dropped because a peer wrote to the server")
+                    .register(registry);
+            }
+            
+            FunctionCounter.builder("ratelimit.rejected", rateLimitFilter, RateLimitFilter::getRejectedCount)
+                .register(registry);
+            FunctionCounter.builder("ratelimit.overflow", rateLimitFilter, RateLimitFilter::getOverflowCount)
+                .register(registry);
+            Gauge.builder("ratelimit.tracked.keys", rateLimitFilter, RateLimitFilter::getTrackedKeys)
+                .register(registry);
+            
+            FunctionCounter.builder("auth.failures", apiKeyAuthFilter, ApiKeyAuthFilter::getFailureCount)
+                .description("Requests rejected for a missing or wrong API key")
+                .register(registry);
+        };
+    }
+}
@@ -11,8 +11,11 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.NotNull;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
-@Configuration
+@Configuration(proxyBeanMethods = false)
 @ConfigurationProperties(prefix = "minecraft.server")
 @Validated
 public class ServerConfig {
@@ -26,10 +29,51 @@ public class ServerConfig {
     
     private ServerMode mode = ServerMode.ONLINE;
     
+    @Min(100)
+    private long requestTimeoutMs = 10000;
+    
+    @NotBlank(message = "Server name is required")
+    private String name = "default";
+    
+    private List<String> groups = new ArrayList<>();
+    
+    @Min(100)
+    private long backendTimeoutMs = 5000;
+    
     @NotNull(message = "RCON configuration is required")
     @Valid
     private RconConfig rcon = new RconConfig();
     
+    @Valid
+    private BatchConfig batch = new BatchConfig();
+    
+    @Valid
+    private CacheConfig cache = new CacheConfig();
+    
+    @Valid
+    private WriteConfig write = new WriteConfig();
+    
+    @Valid
+    private RateLimitConfig rateLimit = new RateLimitConfig();
+    
+    @Valid
+    private IdentityConfig identity = new IdentityConfig();
+    
+    @Valid
+    private StorageConfig storage = new StorageConfig();
+    
+    @Valid
+    private AuditConfig audit = new AuditConfig();
+    
+    @Valid
+    private EventsConfig events = new EventsConfig();
+    
+    @Valid
+    private List<BackendConfig> backends = new ArrayList<>();
+    
+    @Valid
+    private ClusterConfig cluster = new ClusterConfig();
+    
     @Data
     public static class RconConfig {
         private boolean enabled = true;
@@ -43,6 +87,231 @@ public class ServerConfig {
         
         @NotBlank(message = "RCON password is required")
         private String password = "";
+        
+        @Min(100)
+        private int timeoutMs = 5000;
+        
+        @Min(100)
+        private int minTimeoutMs = 1000;
+        
+        @Min(1)
+        @Max(64)
+        private int poolSize = 4;
+        
+        @Min(1)
+        @Max(256)
+        private int maxInFlight = 16;
+        
+        @Min(0)
+        private long poolMaxWaitMs = 2000;
+        
+        @Min(0)
+        private long readMaxWaitMs = 1000;
+        
+        @Min(0)
+        private long backgroundMaxWaitMs = 10000;
+        
+        @Min(0)
+        private long keepaliveIntervalMs = 30000;
+        
+        @Min(1)
+        private int minConcurrency = 4;
+        
+        @Min(1)
+        private int breakerFailureThreshold = 5;
+        
+        @Min(100)
+        private long breakerOpenMs = 5000;
+    }
+    
+    @Data
+    public static class BackendConfig {
+        @NotBlank(message = "Backend name is required")
+        private String name;
+        
+        private List<String> groups = new ArrayList<>();
+        
+        @NotNull(message = "Backend RCON configuration is required")
+        @Valid
+        private RconConfig rcon = new RconConfig();
+    }
+    
+    @Data
+    public static class BatchConfig {
+        @Min(1)
+        private int maxSize = 10000;
+        
+        @Min(1)
+        @Max(1024)
+        private int window = 32;
+    }
+    
+    @Data
+    public static class CacheConfig {
+        @Min(0)
+        private long ttlMs = 10000;
+        
+        @Min(1)
+        private int changeLogSize = 1000;
+    }
+    
+    @Data
+    public static class WriteConfig {
+        @Min(0)
+        @Max(5000)
+        private long coalesceWindowMs = 0;
+    }
+    
+    @Data
+    public static class RateLimitConfig {
+        private boolean enabled = true;
+        
+        @Min(1)
+        private int capacity = 10;
+        
+        @Min(1)
+        private int refillPerMinute = 10;
+        
+        @Min(1)
+        private int maxTrackedKeys = 100000;
+        
+        @Valid
+        private List<RouteLimit> routes = new ArrayList<>();
+    }
+    
+    @Data
+    public static class RouteLimit {
+        @NotBlank(message = "Rate limit route path is required")
+        private String path;
+        
+        @Min(1)
+        private int capacity = 10;
+        
+        @Min(1)
+        private int refillPerMinute = 10;
+    }
+    
+    @Data
+    public static class IdentityConfig {
+        private String profileUrl = "https://api.minecraftservices.com/minecraft/profile/lookup/bulk/byname";
+        
+        @Min(1)
+        @Max(100)
+        private int batchSize = 10;
+        
+        @Min(1)
+        @Max(64)
+        private int maxConcurrentLookups = 2;
+        
+        @Min(100)
+        private int timeoutMs = 5000;
+        
+        @Min(1)
+        private int cacheSize = 100000;
+        
+        @Min(0)
+        private long ttlMs = 7L * 24 * 60 * 60 * 1000;
+        
+        @Min(0)
+        private long negativeTtlMs = 60L * 60 * 1000;
+        
+        private String cacheFile = "identity-cache.tsv";
+        
+        @Min(0)
+        private long saveIntervalMs = 60000;
+    }
+    
+    @Data
+    public static class StorageConfig {
+        private StorageType type = StorageType.RCON;
+        
+        private String whitelistFile = "whitelist.json";
+        
+        @Min(0)
+        @Max(5000)
+        private long flushWindowMs = 0;
+        
+        private boolean reload = true;
+    }
+    
+    @Data
+    public static class AuditConfig {
+        private boolean enabled = true;
+        
+        private String directory = "audit";
+        
+        @Min(16)
+        @Max(1 << 24)
+        private int bufferSize = 65536;
+        
+        @Min(1)
+        @Max(10000)
+        private long flushIntervalMs = 50;
+        
+        private boolean fsync = true;
+        
+        @Min(4096)
+        private long segmentSizeBytes = 16L * 1024 * 1024;
+        
+        @Min(1)
+        private int maxSegments = 64;
+    }
+    
+    @Data
+    public static class EventsConfig {
+        @Min(0)
+        private int maxSubscribers = 1000;
+        
+        @Min(1)
+        @Max(65536)
+        private int bufferSize = 256;
+        
+        @Min(1000)
+        private long keepaliveIntervalMs = 15000;
+        
+        @Min(0)
+        private long refreshIntervalMs = 10000;
+        
+        @Min(0)
+        private long timeoutMs = 30 * 60 * 1000;
+        
+        @Min(1)
+        @Max(1024)
+        private int senderThreads = 8;
+    }
+    
+    @Data
+    public static class ClusterConfig {
+        private boolean enabled = false;
+        
+        private String nodeName = "";
+        
+        private String bindAddress = "0.0.0.0";
+        
+        @Min(1)
+        @Max(65535)
+        private int port = 7946;
+        
+        private List<String> peers = new ArrayList<>();
+        
+        private String secret = "";
+        
+        @Min(10)
+        @Max(10000)
+        private long syncIntervalMs = 50;
+        
+        @Min(100)
+        private long heartbeatIntervalMs = 1000;
+        
+        @Min(100)
+        private long peerTimeoutMs = 5000;
+        
+        @Min(1000)
+        private long maxClockSkewMs = 30000;
+    }
+    
+    public enum StorageType {
+        RCON, FILE
     }
     
     public enum ServerMode {
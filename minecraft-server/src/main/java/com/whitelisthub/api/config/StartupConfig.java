@@ -0,0 +1,50 @@
+package com.whitelisthub.api.config;
+
+import com.whitelisthub.api.audit.AuditEvent;
+import com.whitelisthub.api.controller.WhitelistController;
+import com.whitelisthub.api.model.WhitelistEntry;
+import com.whitelisthub.api.security.ApiKeyAuthFilter;
+import com.whitelisthub.api.security.RateLimitFilter;
+import com.whitelisthub.api.service.AuditService;
+import com.whitelisthub.api.service.ClusterService;
+import com.whitelisthub.api.service.IdentityService;
+import com.whitelisthub.api.service.RconService;
+import com.whitelisthub.api.service.WhitelistCache;
+import com.whitelisthub.api.service.WhitelistEventService;
+import com.whitelisthub.api.service.WhitelistService;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Startup tuning for the {@code fast-startup} build. With
+ * {@code spring.main.lazy-initialization} on, beans are created on first use
+ * except the ones listed here, which serve every request or start background
+ * work (RCON pools, the audit writer, cluster sync) that must not wait for a
+ * first request.
+ * <p>
+ * The controllers return these records inside maps, where Spring's AOT
+ * processing cannot find them, so they are registered for JSON binding
+ * explicitly for native images.
+ */
+@Configuration(proxyBeanMethods = false)
+@RegisterReflectionForBinding({
+    AuditEvent.class,
+    ClusterService.PeerStatus.class,
+    WhitelistCache.Change.class,
+    WhitelistEntry.class,
+    WhitelistService.BatchOperation.class,
+    WhitelistService.BatchResult.class,
+    WhitelistService.ServerResult.class,
+    WhitelistService.ServerStatus.class
+})
+public class StartupConfig {
+    
+    @Bean
+    static LazyInitializationExcludeFilter eagerBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(ApiKeyAuthFilter.class, RateLimitFilter.class,
+            WhitelistController.class, WhitelistService.class, RconService.class, IdentityService.class,
+            AuditService.class, ClusterService.class, WhitelistEventService.class);
+    }
+}
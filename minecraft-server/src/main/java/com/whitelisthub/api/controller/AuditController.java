@@ -0,0 +1,97 @@
+package com.whitelisthub.api.controller;
+
+import com.whitelisthub.api.audit.AuditEvent;
+import com.whitelisthub.api.service.AuditService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/audit")
+@RequiredArgsConstructor
+public class AuditController {
+    
+    private static final int MAX_LIMIT = 1000;
+    
+    private final AuditService auditService;
+    
+    /**
+     * Returns journal entries newest first, optionally filtered by
+     * {@code username}, {@code action} (e.g. {@code ADD_WHITELIST}) and an
+     * inclusive {@code from}/{@code to} range given as ISO-8601 instants or
+     * epoch milliseconds.
+     */
+    @GetMapping
+    public ResponseEntity<?> query(
+            @RequestParam(value = "username", required = false) String username,
+            @RequestParam(value = "action", required = false) String action,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "limit must be between 1 and " + MAX_LIMIT));
+        }
+        
+        long fromMs;
+        long toMs;
+        try {
+            fromMs = from != null ? parseTime(from) : Long.MIN_VALUE;
+            toMs = to != null ? parseTime(to) : Long.MAX_VALUE;
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "from and to must be ISO-8601 instants or epoch milliseconds"));
+        }
+        
+        try {
+            List<AuditEvent> events = auditService.query(blankToNull(username),
+                action != null && !action.isBlank() ? action.toUpperCase(Locale.ROOT) : null, fromMs, toMs, limit);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("count", events.size());
+            response.put("events", events);
+            
+            return ResponseEntity.ok(response);
+        
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("error", e.getMessage()));
+        
+        } catch (IOException e) {
+            log.error("Error reading audit journal: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Failed to read audit journal", "details", String.valueOf(e.getMessage())));
+        }
+    }
+    
+    private static long parseTime(String value) {
+        if (!value.isEmpty() && value.chars().allMatch(Character::isDigit)) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw new DateTimeParseException("Invalid epoch milliseconds", value, 0);
+            }
+        }
+        return Instant.parse(value).toEpochMilli();
+    }
+    
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
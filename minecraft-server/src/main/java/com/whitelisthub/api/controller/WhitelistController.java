@@ -1,22 +1,60 @@
 package com.whitelisthub.api.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.whitelisthub.api.config.ServerConfig;
+import com.whitelisthub.api.model.WhitelistEntry;
+import com.whitelisthub.api.rcon.RconConnectionPool;
+import com.whitelisthub.api.rcon.RconPriority;
+import com.whitelisthub.api.security.RateLimitFilter;
+import com.whitelisthub.api.service.AuditService;
+import com.whitelisthub.api.service.ClusterService;
+import com.whitelisthub.api.service.IdentityService;
 import com.whitelisthub.api.service.RconService;
+import com.whitelisthub.api.service.WhitelistBackend;
+import com.whitelisthub.api.service.WhitelistEventService;
 import com.whitelisthub.api.service.WhitelistService;
+import com.whitelisthub.api.util.UsernameValidator;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @RestController
@@ -24,111 +62,502 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class WhitelistController {
     
+    private static final int MAX_PAGE_SIZE = 10_000;
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+    
     private final WhitelistService whitelistService;
+    private final WhitelistEventService eventService;
+    private final IdentityService identityService;
+    private final AuditService auditService;
+    private final ClusterService clusterService;
     private final RconService rconService;
     private final ServerConfig serverConfig;
+    private final ObjectMapper objectMapper;
+    private final RateLimitFilter rateLimitFilter;
     
+    /**
+     * Completes once every targeted server has answered or timed out, so the
+     * servlet thread is returned to the pool while commands are pending. The
+     * same applies to {@code /remove} and {@code /status}. {@code group}
+     * limits the request to the servers in that group, or to one server by
+     * name; {@code servers} reports each server's reply and latency.
+     */
     @PostMapping("/add")
-    public ResponseEntity<?> addToWhitelist(
+    public CompletableFuture<ResponseEntity<?>> addToWhitelist(
             @RequestBody @Valid AddWhitelistRequest request,
+            @RequestParam(value = "group", required = false) String group,
             HttpServletRequest httpRequest) {
         
         String ip = getClientIp(httpRequest);
         
-        try {
-            whitelistService.addToWhitelist(request.getUsername());
-            
-            logAudit("ADD_WHITELIST", request.getUsername(), ip, true, null);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", request.getUsername() + " added to whitelist");
-            response.put("username", request.getUsername());
-            response.put("mode", serverConfig.getMode().name().toLowerCase());
-            
-            return ResponseEntity.ok(response);
-            
-        } catch (IllegalArgumentException e) {
-            logAudit("ADD_WHITELIST", request.getUsername(), ip, false, e);
-            return ResponseEntity.badRequest()
-                .body(Map.of("error", e.getMessage()));
+        return withTimeout(whitelistService.addToWhitelistAsync(request.getUsername(), group))
+            .handle((result, failure) -> {
+                if (failure != null) {
+                    return failureResponse("ADD_WHITELIST", request.getUsername(), ip, failure,
+                        "Failed to add to whitelist");
+                }
                 
-        } catch (IllegalStateException e) {
-            logAudit("ADD_WHITELIST", request.getUsername(), ip, false, e);
-            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
-                .body(Map.of("error", e.getMessage()));
+                logAudit("ADD_WHITELIST", request.getUsername(), ip, result.success(), null);
                 
-        } catch (IOException e) {
-            log.error("Error adding to whitelist: {}", e.getMessage());
-            logAudit("ADD_WHITELIST", request.getUsername(), ip, false, e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Failed to add to whitelist", "details", e.getMessage()));
-        }
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", result.success());
+                response.put("message", result.success()
+                    ? request.getUsername() + " added to whitelist"
+                    : result.superseded()
+                    ? "Add of " + request.getUsername() + " superseded by a later remove"
+                    : request.getUsername() + " added on " + result.succeeded() + " of " + result.servers().size() + " servers");
+                response.put("superseded", result.superseded());
+                response.put("username", request.getUsername());
+                response.put("mode", serverConfig.getMode().name().toLowerCase());
+                response.put("servers", result.servers());
+                
+                return ResponseEntity.ok(response);
+            });
     }
     
     @DeleteMapping("/remove")
-    public ResponseEntity<?> removeFromWhitelist(
+    public CompletableFuture<ResponseEntity<?>> removeFromWhitelist(
             @RequestBody @Valid RemoveWhitelistRequest request,
+            @RequestParam(value = "group", required = false) String group,
             HttpServletRequest httpRequest) {
         
         String ip = getClientIp(httpRequest);
         
+        return withTimeout(whitelistService.removeFromWhitelistAsync(request.getUsername(), group))
+            .handle((result, failure) -> {
+                if (failure != null) {
+                    return failureResponse("REMOVE_WHITELIST", request.getUsername(), ip, failure,
+                        "Failed to remove from whitelist");
+                }
+                
+                logAudit("REMOVE_WHITELIST", request.getUsername(), ip, result.success(), null);
+                
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", result.success());
+                response.put("message", result.success()
+                    ? request.getUsername() + " removed from whitelist"
+                    : result.superseded()
+                    ? "Remove of " + request.getUsername() + " superseded by a later add"
+                    : request.getUsername() + " removed on " + result.succeeded() + " of " + result.servers().size() + " servers");
+                response.put("superseded", result.superseded());
+                response.put("servers", result.servers());
+                
+                return ResponseEntity.ok(response);
+            });
+    }
+    
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> batch(
+            @RequestBody @Valid BatchRequest request,
+            @RequestParam(value = "group", required = false) String group,
+            HttpServletRequest httpRequest) {
+        
+        String ip = getClientIp(httpRequest);
+        List<WhitelistService.BatchOperation> operations = request.getOperations();
+        
+        if (operations.size() > serverConfig.getBatch().getMaxSize()) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Batch exceeds maximum size of " + serverConfig.getBatch().getMaxSize()));
+        }
+        
+        List<Map<String, Object>> invalid = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            String error = whitelistService.validateOperation(operations.get(i));
+            if (error != null) {
+                Map<String, Object> item = new HashMap<>();
+                item.put("index", i);
+                item.put("username", operations.get(i) != null ? operations.get(i).username() : null);
+                item.put("error", error);
+                invalid.add(item);
+            }
+        }
+        if (!invalid.isEmpty()) {
+            logAudit("BATCH_WHITELIST", null, ip, false, null);
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Batch contains invalid operations", "invalid", invalid));
+        }
+        
         try {
-            whitelistService.removeFromWhitelist(request.getUsername());
+            List<WhitelistService.BatchResult> results = new ArrayList<>(operations.size());
+            whitelistService.executeBatch(operations.iterator(), group, results::add);
+            results.sort(Comparator.comparingInt(WhitelistService.BatchResult::index));
             
-            logAudit("REMOVE_WHITELIST", request.getUsername(), ip, true, null);
+            long succeeded = results.stream().filter(WhitelistService.BatchResult::success).count();
+            logAudit("BATCH_WHITELIST", null, ip, succeeded == results.size(), null);
             
             Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", request.getUsername() + " removed from whitelist");
+            response.put("success", succeeded == results.size());
+            response.put("total", results.size());
+            response.put("succeeded", succeeded);
+            response.put("failed", results.size() - succeeded);
+            response.put("results", results);
             
             return ResponseEntity.ok(response);
             
         } catch (IllegalArgumentException e) {
-            logAudit("REMOVE_WHITELIST", request.getUsername(), ip, false, e);
+            logAudit("BATCH_WHITELIST", null, ip, false, e);
             return ResponseEntity.badRequest()
                 .body(Map.of("error", e.getMessage()));
                 
         } catch (IllegalStateException e) {
-            logAudit("REMOVE_WHITELIST", request.getUsername(), ip, false, e);
+            logAudit("BATCH_WHITELIST", null, ip, false, e);
             return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
                 .body(Map.of("error", e.getMessage()));
                 
         } catch (IOException e) {
-            log.error("Error removing from whitelist: {}", e.getMessage());
-            logAudit("REMOVE_WHITELIST", request.getUsername(), ip, false, e);
+            log.error("Error running whitelist batch: {}", e.getMessage());
+            logAudit("BATCH_WHITELIST", null, ip, false, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Failed to remove from whitelist", "details", e.getMessage()));
+                .body(Map.of("error", "Failed to run whitelist batch", "details", String.valueOf(e.getMessage())));
         }
     }
     
+    /**
+     * Streaming variant of {@code /batch}: one operation per line in, one
+     * result per line out, so neither side of a large import is buffered.
+     */
+    @PostMapping(value = "/batch", consumes = NDJSON_VALUE, produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> batchStream(
+            @RequestParam(value = "group", required = false) String group,
+            HttpServletRequest httpRequest) throws IOException {
+        String ip = getClientIp(httpRequest);
+        InputStream body = httpRequest.getInputStream();
+        
+        StreamingResponseBody stream = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            try (NdjsonOperations operations = new NdjsonOperations(body)) {
+                whitelistService.executeBatch(operations, group, result -> {
+                    try {
+                        writer.write(objectMapper.writeValueAsString(result));
+                        writer.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                logAudit("BATCH_WHITELIST", null, ip, true, null);
+                
+            } catch (RuntimeException | IOException e) {
+                logAudit("BATCH_WHITELIST", null, ip, false, e);
+                writer.write(objectMapper.writeValueAsString(Map.of("error", String.valueOf(e.getMessage()))));
+                writer.write('\n');
+            }
+            writer.flush();
+        };
+        
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(NDJSON_VALUE))
+            .body(stream);
+    }
+    
+    /**
+     * Returns the whitelist sorted case-insensitively. {@code limit} and
+     * {@code after} page through it, with {@code next_after} as the cursor for
+     * the following page. {@code entries=true} adds {@code uuid}/{@code name}
+     * records for the page, resolved through {@link IdentityService}.
+     * {@code stream=true}, or an NDJSON {@code Accept} header, writes the
+     * entries straight to the response instead of building the body in memory.
+     * With several servers the users are merged across those in
+     * {@code group} (all by default) and {@code servers} reports each one.
+     */
     @GetMapping("/status")
-    public ResponseEntity<?> getStatus(HttpServletRequest httpRequest) {
+    public CompletableFuture<Object> getStatus(
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "stream", defaultValue = "false") boolean stream,
+            @RequestParam(value = "entries", defaultValue = "false") boolean entries,
+            @RequestParam(value = "group", required = false) String group,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletRequest httpRequest,
+            HttpServletResponse httpResponse) {
         String ip = getClientIp(httpRequest);
         
-        try {
-            WhitelistService.WhitelistStatus status = whitelistService.getStatus();
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                .body(Map.of("error", "limit must be between 1 and " + MAX_PAGE_SIZE)));
+        }
+        
+        CompletableFuture<StatusPage> page = whitelistService.getStatusAsync(group).thenCompose(status -> {
+            List<String> users = limit != null ? status.page(after, limit) : status.users();
+            String nextAfter = limit != null ? status.nextAfter(users) : null;
+            if (!entries || etagMatches(ifNoneMatch, status.etag())) {
+                return CompletableFuture.completedFuture(new StatusPage(status, users, nextAfter, null));
+            }
+            return identityService.resolve(users)
+                .thenApply(resolved -> new StatusPage(status, users, nextAfter, resolved));
+        });
+        
+        return withTimeout(page).handle((result, failure) -> {
+            if (failure != null) {
+                return failureResponse("STATUS_CHECK", null, ip, failure, "Failed to read whitelist");
+            }
             
             logAudit("STATUS_CHECK", null, ip, true, null);
             
+            WhitelistService.WhitelistStatus status = result.status();
+            if (etagMatches(ifNoneMatch, status.etag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(status.etag()).build();
+            }
+            
+            // Streamed bodies are written on the MVC async executor, never on the RCON thread.
+            if (accept != null && accept.contains(NDJSON_VALUE)) {
+                httpResponse.setContentType(NDJSON_VALUE);
+                httpResponse.setHeader(HttpHeaders.ETAG, status.etag());
+                return (StreamingResponseBody) out -> writeStatusNdjson(result, StreamUtils.nonClosing(out));
+            }
+            if (stream) {
+                httpResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                httpResponse.setHeader(HttpHeaders.ETAG, status.etag());
+                return (StreamingResponseBody) out -> writeStatusJson(result, StreamUtils.nonClosing(out));
+            }
+            
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("count", status.count());
-            response.put("users", status.users());
+            response.put("users", result.users());
             response.put("mode", status.mode());
+            response.put("version", status.version());
+            response.put("epoch", status.epoch());
+            response.put("servers", status.servers());
+            if (limit != null) {
+                response.put("next_after", result.nextAfter());
+            }
+            if (result.entries() != null) {
+                response.put("entries", result.entries());
+            }
+            
+            return ResponseEntity.ok().eTag(status.etag()).body(response);
+        });
+    }
+    
+    private void writeStatusJson(StatusPage page, OutputStream out) throws IOException {
+        WhitelistService.WhitelistStatus status = page.status();
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.writeStartObject();
+            json.writeBooleanField("success", true);
+            json.writeNumberField("count", status.count());
+            json.writeStringField("mode", status.mode());
+            json.writeNumberField("version", status.version());
+            json.writeStringField("epoch", status.epoch());
+            json.writeObjectField("servers", status.servers());
+            if (page.nextAfter() != null) {
+                json.writeStringField("next_after", page.nextAfter());
+            }
+            json.writeArrayFieldStart("users");
+            for (String user : page.users()) {
+                json.writeString(user);
+            }
+            json.writeEndArray();
+            if (page.entries() != null) {
+                json.writeArrayFieldStart("entries");
+                for (WhitelistEntry entry : page.entries()) {
+                    json.writeStartObject();
+                    json.writeStringField("uuid", entry.getUuid());
+                    json.writeStringField("name", entry.getName());
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+            }
+            json.writeEndObject();
+        }
+    }
+    
+    private void writeStatusNdjson(StatusPage page, OutputStream out) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.setRootValueSeparator(null);
+            for (int i = 0; i < page.users().size(); i++) {
+                json.writeStartObject();
+                json.writeStringField("username", page.users().get(i));
+                if (page.entries() != null) {
+                    json.writeStringField("uuid", page.entries().get(i).getUuid());
+                }
+                json.writeEndObject();
+                json.writeRaw('\n');
+            }
+        }
+    }
+    
+    /**
+     * Whether {@code username} is whitelisted, answered from the cached
+     * snapshot with a binary search rather than by fetching the whole list.
+     * An expired snapshot is still used while it is reloaded in the
+     * background, so only the first lookup after startup waits on RCON.
+     * With several servers in {@code group} it is whitelisted if any server
+     * that answered has it; {@code servers} says which answered.
+     */
+    @GetMapping("/contains")
+    public CompletableFuture<ResponseEntity<?>> contains(
+            @RequestParam("username") String username,
+            @RequestParam(value = "group", required = false) String group,
+            HttpServletRequest httpRequest) {
+        String ip = getClientIp(httpRequest);
+        
+        if (!UsernameValidator.isValid(username)) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid username format. Must be 3-16 alphanumeric characters and underscores.")));
+        }
+        String name = UsernameValidator.sanitize(username);
+        
+        return withTimeout(whitelistService.getStatusAsync(group, true)).handle((status, failure) -> {
+            if (failure != null) {
+                return failureResponse("MEMBERSHIP_CHECK", name, ip, failure, "Failed to read whitelist");
+            }
+            
+            logAudit("MEMBERSHIP_CHECK", name, ip, true, null);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("username", name);
+            response.put("whitelisted", status.contains(name));
+            response.put("version", status.version());
+            response.put("epoch", status.epoch());
+            response.put("servers", status.servers());
+            
+            return ResponseEntity.ok(response);
+        });
+    }
+    
+    /**
+     * Whitelisted users whose name starts with {@code prefix}, ignoring case,
+     * in the same order as {@code /status}. {@code more} is true when
+     * {@code limit} cut the list short. Like {@link #contains}, it may answer
+     * from an expired snapshot while a reload runs.
+     */
+    @GetMapping("/search")
+    public CompletableFuture<ResponseEntity<?>> search(
+            @RequestParam("prefix") String prefix,
+            @RequestParam(value = "limit", defaultValue = "25") int limit,
+            @RequestParam(value = "group", required = false) String group,
+            HttpServletRequest httpRequest) {
+        String ip = getClientIp(httpRequest);
+        
+        if (!UsernameValidator.isValidPrefix(prefix)) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                .body(Map.of("error", "prefix must be 1 to 16 letters, digits or underscores")));
+        }
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                .body(Map.of("error", "limit must be between 1 and " + MAX_SEARCH_RESULTS)));
+        }
+        String trimmed = prefix.trim();
+        
+        return withTimeout(whitelistService.getStatusAsync(group, true)).handle((status, failure) -> {
+            if (failure != null) {
+                return failureResponse("WHITELIST_SEARCH", null, ip, failure, "Failed to read whitelist");
+            }
+            
+            logAudit("WHITELIST_SEARCH", null, ip, true, null);
+            
+            // One extra match tells whether there are more
+            List<String> users = status.search(trimmed, limit + 1);
+            boolean more = users.size() > limit;
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("prefix", trimmed);
+            response.put("users", more ? users.subList(0, limit) : users);
+            response.put("more", more);
+            response.put("version", status.version());
+            response.put("epoch", status.epoch());
+            response.put("servers", status.servers());
+            
+            return ResponseEntity.ok(response);
+        });
+    }
+    
+    /**
+     * Incremental feed for pollers. Returns the adds and removes after
+     * {@code since}; when the change log no longer reaches that far, or
+     * {@code epoch} is from an earlier run, returns the full list with
+     * {@code full: true} instead.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(
+            @RequestParam("since") long since,
+            @RequestParam(value = "epoch", required = false) String epoch,
+            HttpServletRequest httpRequest) {
+        String ip = getClientIp(httpRequest);
+        
+        try {
+            WhitelistService.WhitelistChanges changes = whitelistService.getChangesSince(since);
+            
+            logAudit("CHANGES_CHECK", null, ip, true, null);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            
+            if (changes == null || (epoch != null && !epoch.equals(changes.epoch()))) {
+                WhitelistService.WhitelistStatus status = whitelistService.getStatus();
+                response.put("full", true);
+                response.put("version", status.version());
+                response.put("epoch", status.epoch());
+                response.put("count", status.count());
+                response.put("users", status.users());
+                return ResponseEntity.ok(response);
+            }
+            
+            response.put("full", false);
+            response.put("version", changes.version());
+            response.put("epoch", changes.epoch());
+            response.put("changes", changes.changes());
             
             return ResponseEntity.ok(response);
             
         } catch (IllegalStateException e) {
-            logAudit("STATUS_CHECK", null, ip, false, e);
+            logAudit("CHANGES_CHECK", null, ip, false, e);
             return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
                 .body(Map.of("error", e.getMessage()));
                 
         } catch (IOException e) {
-            log.error("Error reading whitelist status: {}", e.getMessage());
-            logAudit("STATUS_CHECK", null, ip, false, e);
+            log.error("Error reading whitelist changes: {}", e.getMessage());
+            logAudit("CHANGES_CHECK", null, ip, false, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Failed to read whitelist", "details", e.getMessage()));
+                .body(Map.of("error", "Failed to read whitelist changes", "details", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Server-Sent Events stream of adds and removes, for dashboards that would
+     * otherwise poll {@code /changes}. A reconnecting client resumes from its
+     * {@code Last-Event-ID}; {@code since} and {@code epoch} do the same for
+     * the first connection.
+     */
+    @GetMapping("/events")
+    public SseEmitter events(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestParam(value = "since", required = false) Long since,
+            @RequestParam(value = "epoch", required = false) String epoch,
+            HttpServletRequest httpRequest,
+            HttpServletResponse httpResponse) throws IOException {
+        String ip = getClientIp(httpRequest);
+        
+        // Ids are "<epoch>-<version>"; one that does not parse starts a fresh stream
+        if (lastEventId != null) {
+            int dash = lastEventId.lastIndexOf('-');
+            since = null;
+            epoch = null;
+            if (dash > 0) {
+                try {
+                    since = Long.parseLong(lastEventId.substring(dash + 1));
+                    epoch = lastEventId.substring(0, dash);
+                } catch (NumberFormatException e) {
+                    // Not one of ours; start fresh
+                }
+            }
+        }
+        
+        try {
+            SseEmitter emitter = eventService.subscribe(since, epoch);
+            logAudit("EVENTS_SUBSCRIBE", null, ip, true, null);
+            return emitter;
+            
+        } catch (IllegalStateException e) {
+            logAudit("EVENTS_SUBSCRIBE", null, ip, false, e);
+            httpResponse.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            httpResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(httpResponse.getOutputStream(), Map.of("error", e.getMessage()));
+            return null;
         }
     }
     
@@ -140,12 +569,58 @@ public class WhitelistController {
         response.put("service", "minecraft-whitelist-api");
         response.put("mode", serverConfig.getMode().name().toLowerCase());
         response.put("rcon_enabled", rconService.isEnabled());
+        response.put("storage", whitelistService.getStorageName());
+        response.put("servers", serverHealth());
         response.put("rcon_host", serverConfig.getRcon().getHost());
         response.put("rcon_port", serverConfig.getRcon().getPort());
+        response.put("rcon_pool_open", rconService.getPoolOpenCount());
+        response.put("rcon_pool_in_flight", rconService.getPoolInFlightCount());
+        Map<String, Integer> queued = new LinkedHashMap<>();
+        for (RconPriority priority : RconPriority.values()) {
+            queued.put(priority.tag(), rconService.getPoolWaitingCount(priority));
+        }
+        response.put("rcon_queued", queued);
+        response.put("rcon_concurrency_limit", rconService.getConcurrencyLimit());
+        response.put("rcon_timeout_ms", rconService.getCommandTimeoutMs());
+        response.put("rcon_breaker", rconService.getBreakerState());
+        response.put("rcon_shed", rconService.getShedCount());
+        response.put("whitelist_cache_hits", whitelistService.getCacheHits());
+        response.put("whitelist_cache_misses", whitelistService.getCacheMisses());
+        response.put("whitelist_writes_merged", whitelistService.getWritesMerged());
+        response.put("whitelist_writes_superseded", whitelistService.getWritesSuperseded());
+        response.put("identity_cache_size", identityService.getCacheSize());
+        response.put("identity_lookups", identityService.getLookupCount());
+        response.put("identity_lookup_failures", identityService.getLookupFailures());
+        response.put("audit_written", auditService.getWrittenCount());
+        response.put("audit_dropped", auditService.getDroppedCount());
+        response.put("events_subscribers", eventService.getSubscriberCount());
+        response.put("events_dropped", eventService.getDroppedCount());
+        response.put("rate_limit_rejected", rateLimitFilter.getRejectedCount());
+        response.put("rate_limit_tracked_keys", rateLimitFilter.getTrackedKeys());
+        response.put("rate_limit_overflow", rateLimitFilter.getOverflowCount());
+        if (clusterService.isEnabled()) {
+            response.put("cluster_node", clusterService.getNodeName());
+            response.put("cluster_peers", clusterService.getPeers());
+        }
         
         return ResponseEntity.ok(response);
     }
     
+    private List<Map<String, Object>> serverHealth() {
+        List<Map<String, Object>> servers = new ArrayList<>();
+        for (WhitelistBackend backend : whitelistService.getBackends()) {
+            RconConnectionPool pool = rconService.getPools().get(backend.getName());
+            Map<String, Object> server = new HashMap<>();
+            server.put("name", backend.getName());
+            server.put("storage", backend.getStorageName());
+            server.put("available", backend.isAvailable());
+            server.put("rcon_breaker", pool != null ? pool.getBreakerState().name().toLowerCase() : "disabled");
+            server.put("whitelist_size", backend.getCache().getSize());
+            servers.add(server);
+        }
+        return servers;
+    }
+    
     private String getClientIp(HttpServletRequest request) {
         String xForwardedFor = request.getHeader("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
@@ -160,9 +635,112 @@ public class WhitelistController {
         return request.getRemoteAddr();
     }
     
-    private void logAudit(String action, String username, String ip, boolean success, Exception error) {
-        log.info("[AUDIT] action={}, username={}, ip={}, success={}, error={}, timestamp={}",
-            action, username, ip, success, error != null ? error.getMessage() : null, LocalDateTime.now());
+    /**
+     * Bounds how long one request waits. The future is copied first so that a
+     * timeout fails only this request, not other callers sharing a coalesced
+     * write or a cache refresh.
+     */
+    private <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future) {
+        return future.copy().orTimeout(serverConfig.getRequestTimeoutMs(), TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Maps a failed whitelist future to the same statuses the blocking
+     * handlers used: 400 for bad input, 503 when RCON is unavailable and 500
+     * for I/O errors and timeouts.
+     */
+    private ResponseEntity<?> failureResponse(String action, String username, String ip, Throwable failure,
+                                              String message) {
+        Throwable cause = RconConnectionPool.unwrap(failure);
+        logAudit(action, username, ip, false, cause);
+        
+        if (cause instanceof IllegalArgumentException) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", cause.getMessage()));
+        }
+        if (cause instanceof IllegalStateException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("error", cause.getMessage()));
+        }
+        
+        log.error("{}: {}", message, cause.getMessage());
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+            .body(Map.of("error", message, "details", String.valueOf(cause.getMessage())));
+    }
+    
+    private boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void logAudit(String action, String username, String ip, boolean success, Throwable error) {
+        auditService.record(action, username, ip, success, error);
+    }
+    
+    private record StatusPage(WhitelistService.WhitelistStatus status, List<String> users, String nextAfter,
+                              List<WhitelistEntry> entries) {}
+    
+    /**
+     * Reads one batch operation per non-blank line. A line that is not a
+     * valid operation fails only its own {@link #next} call, so the lines
+     * after it are still read.
+     */
+    private final class NdjsonOperations implements Iterator<WhitelistService.BatchOperation>, Closeable {
+        
+        private final BufferedReader reader;
+        private String line;
+        
+        NdjsonOperations(InputStream body) {
+            this.reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        }
+        
+        @Override
+        public boolean hasNext() {
+            try {
+                while (line == null) {
+                    String read = reader.readLine();
+                    if (read == null) {
+                        return false;
+                    }
+                    if (!read.isBlank()) {
+                        line = read;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        @Override
+        public WhitelistService.BatchOperation next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String current = line;
+            line = null;
+            try {
+                return objectMapper.readValue(current, WhitelistService.BatchOperation.class);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Malformed operation: " + e.getOriginalMessage());
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
     }
     
     @Data
@@ -171,6 +749,12 @@ public class WhitelistController {
         private String username;
     }
     
+    @Data
+    public static class BatchRequest {
+        @NotEmpty(message = "Operations are required")
+        private List<WhitelistService.BatchOperation> operations;
+    }
+    
     @Data
     public static class RemoveWhitelistRequest {
         @NotBlank(message = "Username is required")
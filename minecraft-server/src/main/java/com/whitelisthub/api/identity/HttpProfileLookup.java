@@ -0,0 +1,91 @@
+package com.whitelisthub.api.identity;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.whitelisthub.api.util.UuidGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Mojang's bulk name lookup: a JSON array of names is posted and the
+ * profiles that exist come back as {@code [{"id": "<hex>", "name": ...}]}.
+ * The URL is configurable so tests can point it at a local stand-in such as
+ * {@code bench/FakeProfileApi.java}.
+ */
+public class HttpProfileLookup implements ProfileLookup {
+    
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final URI uri;
+    private final int batchSize;
+    private final Duration timeout;
+    
+    public HttpProfileLookup(String url, int batchSize, int timeoutMs, ObjectMapper objectMapper) {
+        this.uri = URI.create(url);
+        this.batchSize = batchSize;
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.objectMapper = objectMapper;
+        this.client = HttpClient.newBuilder()
+            .connectTimeout(timeout)
+            .build();
+    }
+    
+    @Override
+    public CompletableFuture<Map<String, UUID>> lookup(List<String> names) {
+        if (names.size() > batchSize) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                "At most " + batchSize + " names per lookup, got " + names.size()));
+        }
+        
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(names)))
+                .build();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+            .thenApply(this::parse);
+    }
+    
+    private Map<String, UUID> parse(HttpResponse<byte[]> response) {
+        if (response.statusCode() != 200) {
+            throw new UncheckedIOException(new IOException("Profile lookup failed: HTTP " + response.statusCode()));
+        }
+        
+        try {
+            Map<String, UUID> profiles = new HashMap<>();
+            for (JsonNode profile : objectMapper.readTree(response.body())) {
+                String name = profile.path("name").asText(null);
+                String id = profile.path("id").asText(null);
+                if (name != null && id != null) {
+                    profiles.put(name.toLowerCase(Locale.ROOT), UuidGenerator.fromUndashed(id));
+                }
+            }
+            return profiles;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    @Override
+    public int maxBatchSize() {
+        return batchSize;
+    }
+}
@@ -0,0 +1,171 @@
+package com.whitelisthub.api.identity;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU of name to UUID resolutions, keyed by lower-case name. A
+ * {@code null} UUID is a negative entry for a name that does not exist; it
+ * expires sooner than a positive one so a newly registered name is picked up.
+ * <p>
+ * The cache can be written to and read back from a tab-separated file, least
+ * recently used first, so it is warm again after a restart.
+ */
+public class IdentityCache {
+    
+    private final int maxSize;
+    private final long ttlMs;
+    private final long negativeTtlMs;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    
+    // Guarded by this
+    private final LinkedHashMap<String, Entry> entries;
+    private boolean dirty;
+    
+    public IdentityCache(int maxSize, long ttlMs, long negativeTtlMs) {
+        this.maxSize = maxSize;
+        this.ttlMs = ttlMs;
+        this.negativeTtlMs = negativeTtlMs;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > IdentityCache.this.maxSize;
+            }
+        };
+    }
+    
+    /**
+     * Looks up every key under one lock. Slot {@code i} of the result holds
+     * the entry for {@code keys.get(i)}, or {@code null} if it is missing or
+     * expired.
+     */
+    public synchronized Entry[] getAll(List<String> keys) {
+        long now = System.currentTimeMillis();
+        Entry[] found = new Entry[keys.size()];
+        int hit = 0;
+        for (int i = 0; i < found.length; i++) {
+            Entry entry = entries.get(keys.get(i));
+            if (entry != null && entry.expiresAt() > now) {
+                found[i] = entry;
+                hit++;
+            }
+        }
+        hits.add(hit);
+        misses.add(found.length - hit);
+        return found;
+    }
+    
+    public synchronized void put(String key, UUID uuid) {
+        long ttl = uuid != null ? ttlMs : negativeTtlMs;
+        entries.put(key, new Entry(uuid, System.currentTimeMillis() + ttl));
+        dirty = true;
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    public long getMisses() {
+        return misses.sum();
+    }
+    
+    /**
+     * Writes the cache to {@code file} through a temporary file, so a crash
+     * mid-write leaves the previous copy intact. Does nothing if nothing has
+     * changed since the last save.
+     */
+    public void save(Path file) throws IOException {
+        List<Map.Entry<String, Entry>> copy;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            copy = new ArrayList<>(entries.entrySet());
+            dirty = false;
+        }
+        
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            long now = System.currentTimeMillis();
+            for (Map.Entry<String, Entry> entry : copy) {
+                Entry value = entry.getValue();
+                if (value.expiresAt() <= now) {
+                    continue;
+                }
+                writer.write(entry.getKey());
+                writer.write('\t');
+                writer.write(value.uuid() != null ? value.uuid().toString() : "");
+                writer.write('\t');
+                writer.write(Long.toString(value.expiresAt()));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            synchronized (this) {
+                dirty = true;
+            }
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Loads entries saved by {@link #save}, skipping expired and malformed
+     * lines. Returns the number of entries loaded.
+     */
+    public int load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        
+        long now = System.currentTimeMillis();
+        int loaded = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 3) {
+                    continue;
+                }
+                try {
+                    long expiresAt = Long.parseLong(fields[2]);
+                    if (expiresAt <= now) {
+                        continue;
+                    }
+                    UUID uuid = fields[1].isEmpty() ? null : UUID.fromString(fields[1]);
+                    synchronized (this) {
+                        entries.put(fields[0], new Entry(uuid, expiresAt));
+                    }
+                    loaded++;
+                } catch (IllegalArgumentException e) {
+                    // Skip a damaged line rather than the whole file
+                }
+            }
+        }
+        return loaded;
+    }
+    
+    /**
+     * A cached resolution; {@code uuid} is {@code null} for a name that does
+     * not exist.
+     */
+    public record Entry(UUID uuid, long expiresAt) {}
+}
@@ -0,0 +1,22 @@
+package com.whitelisthub.api.identity;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Resolves player names to their online-mode UUIDs. Declare a bean of this
+ * type to replace the default {@link HttpProfileLookup}.
+ */
+public interface ProfileLookup {
+    
+    /**
+     * Looks up at most {@link #maxBatchSize()} names in one request. The
+     * result is keyed by lower-case name; names missing from it do not exist.
+     * A failed request completes the future exceptionally.
+     */
+    CompletableFuture<Map<String, UUID>> lookup(List<String> names);
+    
+    int maxBatchSize();
+}
@@ -0,0 +1,82 @@
+package com.whitelisthub.api.rcon;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops sending commands to an RCON server that keeps failing. After
+ * {@code failureThreshold} consecutive I/O failures the breaker opens and
+ * every command is rejected at once. Once {@code openMs} has passed the owner
+ * may start a single probe (half-open); its outcome closes the breaker or
+ * keeps it open for another period.
+ */
+public class RconCircuitBreaker {
+    
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+    
+    private final int failureThreshold;
+    private final long openNanos;
+    
+    private volatile State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    
+    public RconCircuitBreaker(int failureThreshold, long openMs) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+    }
+    
+    public boolean allowRequest() {
+        return state == State.CLOSED;
+    }
+    
+    public State getState() {
+        return state;
+    }
+    
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+    }
+    
+    /**
+     * Records a failed command and returns {@code true} if it tripped the
+     * breaker.
+     */
+    public synchronized boolean onFailure() {
+        if (state != State.CLOSED || ++consecutiveFailures < failureThreshold) {
+            return false;
+        }
+        open();
+        return true;
+    }
+    
+    /**
+     * Moves an open breaker whose wait has elapsed to half-open. Returns
+     * {@code true} if the caller should now run the probe.
+     */
+    public synchronized boolean tryStartProbe() {
+        if (state != State.OPEN || System.nanoTime() - openedAt < openNanos) {
+            return false;
+        }
+        state = State.HALF_OPEN;
+        return true;
+    }
+    
+    public synchronized void onProbeResult(boolean healthy) {
+        if (state != State.HALF_OPEN) {
+            return;
+        }
+        if (healthy) {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+        } else {
+            open();
+        }
+    }
+    
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+}
@@ -0,0 +1,52 @@
+package com.whitelisthub.api.rcon;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * One command waiting for, or holding, a slot in an {@link RconConnectionPool}.
+ * Whichever of dispatch, expiry, eviction or shutdown claims it first decides
+ * how its future completes.
+ */
+final class RconCommand {
+    
+    final String command;
+    final Supplier<? extends RconReplyParser<?>> parser;
+    final RconPriority priority;
+    final String client;
+    final long enqueuedAt;
+    final long deadline;
+    final CompletableFuture<Object> future = new CompletableFuture<>();
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    
+    RconCommand(String command, Supplier<? extends RconReplyParser<?>> parser, RconPriority priority, String client,
+                long enqueuedAt, long deadline) {
+        this.command = command;
+        this.parser = parser;
+        this.priority = priority;
+        this.client = client;
+        this.enqueuedAt = enqueuedAt;
+        this.deadline = deadline;
+    }
+    
+    /**
+     * A parser for one attempt, typed to match {@link #future}.
+     */
+    @SuppressWarnings("unchecked")
+    RconReplyParser<Object> newParser() {
+        return (RconReplyParser<Object>) parser.get();
+    }
+    
+    boolean claim() {
+        return claimed.compareAndSet(false, true);
+    }
+    
+    boolean isClaimed() {
+        return claimed.get();
+    }
+    
+    boolean isExpired(long now) {
+        return now - deadline >= 0;
+    }
+}
@@ -0,0 +1,42 @@
+package com.whitelisthub.api.rcon;
+
+/**
+ * Additive-increase, multiplicative-decrease limit on the number of RCON
+ * commands in flight. Every command that completes quickly while the limit
+ * is at least half used raises it by {@code 1/limit}, so it grows by about
+ * one per round trip. A timeout or a slow reply cuts it by a quarter, so a
+ * lagging server is offered less work instead of a growing queue.
+ */
+public class RconConcurrencyLimit {
+    
+    private static final double BACKOFF = 0.75;
+    
+    private final int min;
+    private final int max;
+    
+    private double limit;
+    private volatile int current;
+    
+    public RconConcurrencyLimit(int min, int max) {
+        this.min = Math.min(min, max);
+        this.max = max;
+        this.limit = max;
+        this.current = max;
+    }
+    
+    public int get() {
+        return current;
+    }
+    
+    public synchronized void onSuccess(int inFlight) {
+        if (inFlight * 2 >= limit) {
+            limit = Math.min(max, limit + 1.0 / limit);
+            current = (int) limit;
+        }
+    }
+    
+    public synchronized void onDrop() {
+        limit = Math.max(min, limit * BACKOFF);
+        current = (int) limit;
+    }
+}
@@ -0,0 +1,472 @@
+package com.whitelisthub.api.rcon;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A single authenticated, pipelined RCON session on a non-blocking channel.
+ * Any number of threads may send commands concurrently; replies are matched
+ * back to their command by request id on the {@link RconEventLoop} thread,
+ * which is also where the returned futures complete.
+ * <p>
+ * The server splits long replies into several packets without marking the
+ * last one, so every command is followed by an empty {@code RESPONSE_VALUE}
+ * packet. The server answers packets in order, so the reply to that sentinel
+ * tells us every fragment of the command's reply has arrived. Fragments are
+ * handed to the command's {@link RconReplyParser} as they are read.
+ */
+@Slf4j
+public class RconConnection implements Closeable {
+    
+    static final int TYPE_RESPONSE = 0;
+    static final int TYPE_COMMAND = 2;
+    private static final int TYPE_AUTH_RESPONSE = 2;
+    private static final int TYPE_AUTH = 3;
+    
+    private static final int HEADER_SIZE = 12;
+    private static final int TRAILER_SIZE = 2;
+    
+    private final RconEventLoop loop;
+    private final RconBufferPool buffers;
+    private final RconMetrics metrics;
+    private final SocketChannel channel;
+    private final int timeoutMs;
+    private final long openedAt = System.nanoTime();
+    private final CompletableFuture<RconConnection> opened = new CompletableFuture<>();
+    private final PacketSink packetSink = this::onPacket;
+    
+    // Event-loop state
+    private final Map<Integer, PendingCommand<?>> fragments = new HashMap<>();
+    private final Map<Integer, PendingCommand<?>> completions = new HashMap<>();
+    private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+    private SelectionKey key;
+    private ByteBuffer readBuffer;
+    private int requestIds;
+    private int authId;
+    private boolean authenticated;
+    
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile long lastUsed = System.currentTimeMillis();
+    private volatile long connectedAt;
+    private volatile boolean broken;
+    
+    private RconConnection(RconEventLoop loop, RconBufferPool buffers, RconMetrics metrics, SocketChannel channel,
+                           int timeoutMs) {
+        this.loop = loop;
+        this.buffers = buffers;
+        this.metrics = metrics;
+        this.channel = channel;
+        this.timeoutMs = timeoutMs;
+    }
+    
+    /**
+     * Connects and authenticates. The future fails with an {@link IOException}
+     * if the server is unreachable or rejects the password.
+     */
+    public static CompletableFuture<RconConnection> open(RconEventLoop loop, RconBufferPool buffers, RconMetrics metrics,
+                                                         String host, int port, String password, int timeoutMs) {
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        RconConnection connection = new RconConnection(loop, buffers, metrics, channel, timeoutMs);
+        loop.execute(() -> connection.connect(new InetSocketAddress(host, port), password));
+        
+        return connection.opened
+            .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+            .whenComplete((c, e) -> {
+                if (e != null) {
+                    connection.recordOpenFailure();
+                    connection.close();
+                }
+            });
+    }
+    
+    private void connect(InetSocketAddress address, String password) {
+        try {
+            readBuffer = buffers.acquire();
+            key = channel.register(loop.selector(), 0, this);
+            
+            authId = nextRequestId();
+            enqueue(encode(buffers.acquire(), authId, TYPE_AUTH, password));
+            
+            if (channel.connect(address)) {
+                onConnected();
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            } else {
+                key.interestOps(SelectionKey.OP_CONNECT);
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e instanceof IOException io ? io : new IOException(e));
+        }
+    }
+    
+    /**
+     * Sends a command, failing it with a {@link java.util.concurrent.TimeoutException}
+     * if the reply takes longer than {@code timeoutMs}.
+     */
+    public CompletableFuture<String> execute(String command, long timeoutMs) {
+        return execute(command, timeoutMs, RconReplyParser.text());
+    }
+    
+    /**
+     * Sends a command whose reply is fed to {@code parser} as it arrives
+     * rather than collected into a string.
+     */
+    public <T> CompletableFuture<T> execute(String command, long timeoutMs, RconReplyParser<T> parser) {
+        PendingCommand<T> pending = new PendingCommand<>(parser);
+        inFlight.incrementAndGet();
+        
+        loop.execute(() -> {
+            if (broken) {
+                pending.future.completeExceptionally(new EOFException("RCON connection closed"));
+                return;
+            }
+            
+            ByteBuffer buffer = buffers.acquire();
+            try {
+                pending.commandId = nextRequestId();
+                pending.sentinelId = nextRequestId();
+                encode(buffer, pending.commandId, TYPE_COMMAND, command);
+                encode(buffer, pending.sentinelId, TYPE_RESPONSE, "");
+            } catch (IOException e) {
+                buffers.release(buffer);
+                pending.future.completeExceptionally(e);
+                return;
+            }
+            
+            fragments.put(pending.commandId, pending);
+            completions.put(pending.sentinelId, pending);
+            enqueue(buffer);
+        });
+        
+        return pending.future
+            .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+            .whenComplete((response, error) -> {
+                inFlight.decrementAndGet();
+                lastUsed = System.currentTimeMillis();
+                if (error != null) {
+                    // Forget timed-out commands so a late reply is dropped.
+                    loop.execute(() -> {
+                        fragments.remove(pending.commandId);
+                        completions.remove(pending.sentinelId);
+                    });
+                }
+            });
+    }
+    
+    /**
+     * Keepalive probe. The server answers unknown packet types on its network
+     * thread, so this does not queue any work on the game thread.
+     */
+    public CompletableFuture<Boolean> ping() {
+        PendingCommand<String> pending = new PendingCommand<>(RconReplyParser.text());
+        
+        loop.execute(() -> {
+            if (broken) {
+                pending.future.completeExceptionally(new EOFException("RCON connection closed"));
+                return;
+            }
+            
+            ByteBuffer buffer = buffers.acquire();
+            pending.sentinelId = nextRequestId();
+            try {
+                encode(buffer, pending.sentinelId, TYPE_RESPONSE, "");
+            } catch (IOException e) {
+                buffers.release(buffer);
+                pending.future.completeExceptionally(e);
+                return;
+            }
+            completions.put(pending.sentinelId, pending);
+            enqueue(buffer);
+        });
+        
+        return pending.future
+            .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+            .handle((response, error) -> {
+                if (error != null) {
+                    log.debug("RCON keepalive failed: {}", error.getMessage());
+                    close();
+                    return false;
+                }
+                lastUsed = System.currentTimeMillis();
+                return true;
+            });
+    }
+    
+    private void onConnected() {
+        connectedAt = System.nanoTime();
+        metrics.connect(connectedAt - openedAt, true);
+    }
+    
+    /**
+     * Times a failed open against the phase it failed in: the TCP connect, or
+     * the login once connected.
+     */
+    private void recordOpenFailure() {
+        long now = System.nanoTime();
+        if (connectedAt == 0) {
+            metrics.connect(now - openedAt, false);
+        } else {
+            metrics.auth(now - connectedAt, false);
+        }
+    }
+    
+    void handle(SelectionKey key) {
+        try {
+            if (key.isConnectable()) {
+                channel.finishConnect();
+                onConnected();
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+            if (key.isValid() && key.isWritable()) {
+                flush();
+            }
+            if (key.isValid() && key.isReadable()) {
+                read();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+    
+    private void enqueue(ByteBuffer buffer) {
+        buffer.flip();
+        writeQueue.add(buffer);
+        if (key != null && key.isValid() && channel.isConnected()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+    
+    private void flush() throws IOException {
+        ByteBuffer buffer;
+        while ((buffer = writeQueue.peek()) != null) {
+            channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                return;
+            }
+            writeQueue.poll();
+            buffers.release(buffer);
+        }
+        key.interestOps(SelectionKey.OP_READ);
+    }
+    
+    private void read() throws IOException {
+        if (channel.read(readBuffer) < 0) {
+            throw new EOFException("RCON connection closed by server");
+        }
+        
+        readBuffer.flip();
+        decode(readBuffer, packetSink);
+        readBuffer.compact();
+    }
+    
+    /**
+     * Hands every complete packet in {@code buffer} (between position and
+     * limit) to {@code sink} and leaves the position at the first incomplete
+     * one. Bodies are passed as offsets into the buffer and are not copied.
+     */
+    static void decode(ByteBuffer buffer, PacketSink sink) throws IOException {
+        while (buffer.remaining() >= 4) {
+            int start = buffer.position();
+            int length = buffer.getInt(start);
+            if (length < HEADER_SIZE - 4 + TRAILER_SIZE || length > buffer.capacity() - 4) {
+                throw new IOException("Invalid RCON packet length: " + length);
+            }
+            if (buffer.remaining() < 4 + length) {
+                break;
+            }
+            
+            int requestId = buffer.getInt(start + 4);
+            int type = buffer.getInt(start + 8);
+            sink.onPacket(buffer, requestId, type, start + HEADER_SIZE, length - 8 - TRAILER_SIZE);
+            buffer.position(start + 4 + length);
+        }
+    }
+    
+    private void onPacket(ByteBuffer buffer, int requestId, int type, int bodyOffset, int bodyLength) {
+        if (!authenticated) {
+            // Some servers send an empty RESPONSE_VALUE ahead of the auth reply.
+            if (type != TYPE_AUTH_RESPONSE) {
+                return;
+            }
+            if (requestId != authId) {
+                fail(new IOException("RCON authentication failed"));
+                return;
+            }
+            authenticated = true;
+            metrics.auth(System.nanoTime() - connectedAt, true);
+            log.debug("RCON authenticated successfully");
+            opened.complete(this);
+            return;
+        }
+        
+        PendingCommand<?> fragmentOwner = fragments.get(requestId);
+        if (fragmentOwner != null) {
+            fragmentOwner.accept(buffer, bodyOffset, bodyLength);
+        }
+        
+        PendingCommand<?> completed = completions.remove(requestId);
+        if (completed != null) {
+            fragments.remove(completed.commandId);
+            completed.finish();
+        }
+    }
+    
+    /**
+     * Appends one packet at the buffer's position. ASCII bodies, which is
+     * every whitelist command, are copied without an intermediate byte array.
+     */
+    static ByteBuffer encode(ByteBuffer buffer, int requestId, int type, String body) throws IOException {
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_SIZE + TRAILER_SIZE + body.length()) {
+            throw new IOException("RCON command too long");
+        }
+        
+        buffer.position(start + HEADER_SIZE);
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c >= 0x80) {
+                // Rare non-ASCII body; fall back to the JDK encoder.
+                buffer.position(start + HEADER_SIZE);
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                if (buffer.remaining() < bytes.length + TRAILER_SIZE) {
+                    throw new IOException("RCON command too long");
+                }
+                buffer.put(bytes);
+                break;
+            }
+            buffer.put((byte) c);
+        }
+        buffer.put((byte) 0);
+        buffer.put((byte) 0);
+        
+        buffer.putInt(start, buffer.position() - start - 4);
+        buffer.putInt(start + 4, requestId);
+        buffer.putInt(start + 8, type);
+        return buffer;
+    }
+    
+    private int nextRequestId() {
+        // Keep ids positive; -1 is how the server signals a failed login.
+        requestIds = requestIds == Integer.MAX_VALUE ? 1 : requestIds + 1;
+        return requestIds;
+    }
+    
+    private void fail(IOException error) {
+        if (broken) {
+            return;
+        }
+        broken = true;
+        log.debug("RCON connection lost: {}", error.getMessage());
+        
+        // Callbacks run inline on this thread and touch the maps, so empty them first.
+        List<PendingCommand<?>> pending = new ArrayList<>(completions.values());
+        completions.clear();
+        fragments.clear();
+        release();
+        
+        opened.completeExceptionally(error);
+        pending.forEach(command -> command.future.completeExceptionally(error));
+    }
+    
+    private void release() {
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Error closing RCON channel: {}", e.getMessage());
+        }
+        
+        ByteBuffer buffer;
+        while ((buffer = writeQueue.poll()) != null) {
+            buffers.release(buffer);
+        }
+        buffers.release(readBuffer);
+        readBuffer = null;
+    }
+    
+    public boolean isOpen() {
+        return !broken && channel.isOpen();
+    }
+    
+    public int getInFlight() {
+        return inFlight.get();
+    }
+    
+    public long getOpenedAt() {
+        return openedAt;
+    }
+    
+    public long getLastUsed() {
+        return lastUsed;
+    }
+    
+    @Override
+    public void close() {
+        loop.execute(() -> fail(new EOFException("RCON connection closed")));
+    }
+    
+    interface PacketSink {
+        void onPacket(ByteBuffer buffer, int requestId, int type, int bodyOffset, int bodyLength);
+    }
+    
+    private static final class PendingCommand<T> {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final RconReplyParser<T> parser;
+        int commandId;
+        int sentinelId;
+        
+        PendingCommand(RconReplyParser<T> parser) {
+            this.parser = parser;
+        }
+        
+        void accept(ByteBuffer source, int offset, int length) {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                parser.accept(source, offset, length);
+            } catch (RuntimeException e) {
+                // Keep reading the connection; the rest of this reply is discarded.
+                future.completeExceptionally(e);
+            }
+        }
+        
+        void finish() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(parser.finish());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package com.whitelisthub.api.rcon;
+
+import com.whitelisthub.api.config.ServerConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of pre-authenticated, pipelined RCON sessions. At most
+ * {@code poolSize} sessions are open and each carries up to
+ * {@code maxInFlight} commands at once. Commands beyond that wait in a
+ * queue without holding a thread. The queue is ordered by
+ * {@link RconPriority} and shared fairly between clients (see
+ * {@link RconScheduler}). A command still queued at its deadline is dropped
+ * without being sent. The deadline is {@code poolMaxWaitMs} for writes,
+ * {@code readMaxWaitMs} for reads and {@code backgroundMaxWaitMs} for
+ * background work.
+ * <p>
+ * The pool also protects callers from a slow or restarting server:
+ * <ul>
+ *   <li>each command times out after a multiple of the recent p99 latency,
+ *       between {@code minTimeoutMs} and {@code timeoutMs};</li>
+ *   <li>the number of commands in flight follows an adaptive limit, and a
+ *       command that would queue behind more than that many others is
+ *       rejected at once;</li>
+ *   <li>a circuit breaker rejects every command while the server keeps
+ *       failing, and probes it in the background to detect recovery.</li>
+ * </ul>
+ * Rejections fail with {@link IllegalStateException}.
+ */
+@Slf4j
+public class RconConnectionPool implements Closeable {
+    
+    private final ServerConfig.RconConfig config;
+    private final RconEventLoop loop;
+    private final RconBufferPool buffers;
+    private final RconMetrics metrics;
+    private final int capacity;
+    private final List<RconConnection> connections = new CopyOnWriteArrayList<>();
+    private final RconScheduler waiting = new RconScheduler();
+    private final ScheduledExecutorService maintenance;
+    private final RconLatencyWindow latencies = new RconLatencyWindow();
+    private final RconConcurrencyLimit limit;
+    private final RconCircuitBreaker breaker;
+    private final LongAdder shed = new LongAdder();
+    
+    private int inFlight;
+    private CompletableFuture<RconConnection> opening;
+    private volatile boolean closed;
+    
+    public RconConnectionPool(ServerConfig.RconConfig config, RconEventLoop loop, RconBufferPool buffers,
+                              RconMetrics metrics) {
+        this.config = config;
+        this.loop = loop;
+        this.buffers = buffers;
+        this.metrics = metrics;
+        this.capacity = config.getPoolSize() * config.getMaxInFlight();
+        this.limit = new RconConcurrencyLimit(config.getMinConcurrency(), capacity);
+        this.breaker = new RconCircuitBreaker(config.getBreakerFailureThreshold(), config.getBreakerOpenMs());
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rcon-pool-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    public void start() {
+        maintenance.execute(this::warmUp);
+        
+        long interval = config.getKeepaliveIntervalMs();
+        if (interval > 0) {
+            maintenance.scheduleWithFixedDelay(this::keepalive, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    public CompletableFuture<String> execute(String command) {
+        return execute(command, RconPriority.READ, null);
+    }
+    
+    /**
+     * Sends {@code command} as soon as a slot is free and nothing of a higher
+     * priority is waiting. {@code client} identifies the caller for fair
+     * queueing; {@code null} groups the command with other work that has no
+     * client.
+     */
+    public CompletableFuture<String> execute(String command, RconPriority priority, String client) {
+        return execute(command, priority, client, RconReplyParser::text);
+    }
+    
+    /**
+     * As {@link #execute(String, RconPriority, String)}, parsing the reply
+     * with a parser from {@code parser} as it is read. Each attempt to send
+     * the command gets a new parser.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> execute(String command, RconPriority priority, String client,
+                                            Supplier<? extends RconReplyParser<T>> parser) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("RCON connection pool is closed"));
+        }
+        
+        if (!breaker.allowRequest()) {
+            shed.increment();
+            metrics.error("breaker_open");
+            return CompletableFuture.failedFuture(new IllegalStateException("RCON server is unavailable"));
+        }
+        
+        long now = System.nanoTime();
+        long maxWaitMs = maxWaitMs(priority);
+        RconCommand queued = new RconCommand(command, parser, priority, client != null ? client : "", now,
+            now + TimeUnit.MILLISECONDS.toNanos(maxWaitMs));
+        boolean dispatchNow;
+        RconCommand displaced = null;
+        synchronized (waiting) {
+            int current = limit.get();
+            dispatchNow = inFlight < current;
+            if (dispatchNow) {
+                inFlight++;
+            } else {
+                displaced = waiting.offer(queued, current);
+            }
+        }
+        
+        if (displaced != null && displaced.claim()) {
+            // Either the new command, refused, or the queued one it displaced
+            shed.increment();
+            metrics.error("overloaded");
+            displaced.future.completeExceptionally(new IllegalStateException("RCON server is overloaded"));
+        }
+        if (dispatchNow) {
+            queued.claim();
+            dispatch(queued);
+        } else if (displaced != queued) {
+            maintenance.schedule(() -> expire(queued), maxWaitMs, TimeUnit.MILLISECONDS);
+        }
+        return (CompletableFuture<T>) queued.future;
+    }
+    
+    private long maxWaitMs(RconPriority priority) {
+        return switch (priority) {
+            case WRITE -> config.getPoolMaxWaitMs();
+            case READ -> config.getReadMaxWaitMs();
+            case BACKGROUND -> config.getBackgroundMaxWaitMs();
+        };
+    }
+    
+    private void expire(RconCommand queued) {
+        if (queued.claim()) {
+            synchronized (waiting) {
+                // Free its place now rather than when poll reaches it, or dead commands shed live ones
+                waiting.remove(queued);
+            }
+            metrics.error("queue_timeout");
+            queued.future.completeExceptionally(new IOException("Timed out waiting for an RCON connection"));
+        }
+    }
+    
+    private void dispatch(RconCommand queued) {
+        long started = System.nanoTime();
+        metrics.queueWait(queued.priority, started - queued.enqueuedAt);
+        long timeoutMs = getCommandTimeoutMs();
+        select()
+            .thenCompose(connection -> connection.execute(queued.command, timeoutMs, queued.newParser())
+                .exceptionallyCompose(error -> retry(connection, started, queued, timeoutMs, error)))
+            .whenComplete((response, error) -> {
+                record(started, timeoutMs, error);
+                if (error != null) {
+                    queued.future.completeExceptionally(unwrap(error));
+                } else {
+                    queued.future.complete(response);
+                }
+                next();
+            });
+    }
+    
+    /**
+     * Feeds one command's outcome to the latency window, the concurrency limit
+     * and the breaker. A timeout is recorded at its full length so that the
+     * adaptive timeout can grow again when the server slows down.
+     */
+    private void record(long started, long timeoutMs, Throwable error) {
+        long elapsed = System.nanoTime() - started;
+        Throwable cause = error != null ? unwrap(error) : null;
+        metrics.command(elapsed, cause);
+        
+        if (cause == null) {
+            latencies.record(elapsed);
+            breaker.onSuccess();
+            if (elapsed > TimeUnit.MILLISECONDS.toNanos(timeoutMs) / 2) {
+                limit.onDrop();
+            } else {
+                limit.onSuccess(getInFlightCount());
+            }
+            return;
+        }
+        if (!(cause instanceof IOException)) {
+            return;
+        }
+        
+        if (cause instanceof SocketTimeoutException) {
+            latencies.record(TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+            limit.onDrop();
+        }
+        if (breaker.onFailure()) {
+            log.warn("RCON circuit breaker opened after repeated failures: {}", cause.getMessage());
+            failWaiting(new IllegalStateException("RCON server is unavailable"));
+            maintenance.schedule(this::probe, config.getBreakerOpenMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Half-open check while the breaker is open: pings a pooled session, or
+     * a freshly opened one, without sending a command to the game.
+     */
+    private void probe() {
+        if (closed || !breaker.tryStartProbe()) {
+            return;
+        }
+        
+        select()
+            .thenCompose(RconConnection::ping)
+            .exceptionally(error -> false)
+            .thenAccept(healthy -> {
+                breaker.onProbeResult(healthy);
+                if (healthy) {
+                    log.info("RCON circuit breaker closed; server is reachable again");
+                } else if (!closed) {
+                    maintenance.schedule(this::probe, config.getBreakerOpenMs(), TimeUnit.MILLISECONDS);
+                }
+            });
+    }
+    
+    /**
+     * Timeout for the next command: four times the recent p99 latency,
+     * clamped to {@code [minTimeoutMs, timeoutMs]}. Until enough commands have
+     * completed this is simply {@code timeoutMs}.
+     */
+    public long getCommandTimeoutMs() {
+        long p99 = latencies.percentile(0.99);
+        if (p99 < 0) {
+            return config.getTimeoutMs();
+        }
+        long adaptive = TimeUnit.NANOSECONDS.toMillis(p99) * 4;
+        return Math.min(config.getTimeoutMs(), Math.max(config.getMinTimeoutMs(), adaptive));
+    }
+    
+    private CompletableFuture<Object> retry(RconConnection connection, long started, RconCommand queued,
+                                            long timeoutMs, Throwable error) {
+        Throwable cause = unwrap(error);
+        if (!(cause instanceof IOException) || cause instanceof SocketTimeoutException
+                || connection.isOpen() || connection.getOpenedAt() >= started) {
+            return CompletableFuture.failedFuture(cause);
+        }
+        
+        // A pooled session may have been dropped by a server restart since its last probe.
+        log.debug("Retrying RCON command on a fresh connection: {}", cause.getMessage());
+        return select().thenCompose(fresh -> fresh.execute(queued.command, timeoutMs, queued.newParser()));
+    }
+    
+    private void next() {
+        RconCommand next;
+        List<RconCommand> expired = new ArrayList<>(0);
+        synchronized (waiting) {
+            // Give the slot back instead of passing it on while the limit is below what is in flight.
+            if (inFlight > limit.get()) {
+                next = null;
+            } else {
+                long now = System.nanoTime();
+                do {
+                    next = waiting.poll(now, expired);
+                } while (next != null && !next.claim());
+            }
+            
+            if (next == null) {
+                inFlight--;
+            }
+        }
+        
+        // Past their deadline: whoever sent them has stopped waiting, so they are never sent
+        expired.forEach(this::expire);
+        if (next != null) {
+            dispatch(next);
+        }
+    }
+    
+    /**
+     * Picks the least busy open session, opening a new one in the background
+     * while the pool is below its size limit and every session already has work.
+     */
+    private CompletableFuture<RconConnection> select() {
+        RconConnection best = leastBusy();
+        if (best != null && (best.getInFlight() == 0 || connections.size() >= config.getPoolSize())) {
+            return CompletableFuture.completedFuture(best);
+        }
+        
+        CompletableFuture<RconConnection> pendingOpen;
+        synchronized (connections) {
+            removeBroken();
+            if (opening == null && connections.size() < config.getPoolSize()) {
+                pendingOpen = startOpen();
+            } else {
+                pendingOpen = opening;
+            }
+        }
+        
+        if (best != null) {
+            return CompletableFuture.completedFuture(best);
+        }
+        if (pendingOpen != null) {
+            return pendingOpen;
+        }
+        return CompletableFuture.failedFuture(new IOException("No RCON connection available"));
+    }
+    
+    private CompletableFuture<RconConnection> startOpen() {
+        CompletableFuture<RconConnection> future = RconConnection.open(
+            loop, buffers, metrics, config.getHost(), config.getPort(), config.getPassword(), config.getTimeoutMs());
+        opening = future;
+        // Callers continue once the session is in the pool, not merely open
+        return future.whenComplete((connection, error) -> {
+            synchronized (connections) {
+                if (opening == future) {
+                    opening = null;
+                }
+                if (connection != null) {
+                    connections.add(connection);
+                }
+            }
+        });
+    }
+    
+    private RconConnection leastBusy() {
+        RconConnection best = null;
+        for (RconConnection connection : connections) {
+            if (connection.isOpen() && (best == null || connection.getInFlight() < best.getInFlight())) {
+                best = connection;
+            }
+        }
+        return best;
+    }
+    
+    private void removeBroken() {
+        for (RconConnection connection : connections) {
+            if (!connection.isOpen()) {
+                connections.remove(connection);
+                connection.close();
+            }
+        }
+    }
+    
+    public int getOpenCount() {
+        return connections.size();
+    }
+    
+    public int getInFlightCount() {
+        synchronized (waiting) {
+            return inFlight;
+        }
+    }
+    
+    public int getWaitingCount() {
+        synchronized (waiting) {
+            return waiting.size();
+        }
+    }
+    
+    public int getWaitingCount(RconPriority priority) {
+        synchronized (waiting) {
+            return waiting.size(priority);
+        }
+    }
+    
+    public int getConcurrencyLimit() {
+        return limit.get();
+    }
+    
+    public RconCircuitBreaker.State getBreakerState() {
+        return breaker.getState();
+    }
+    
+    public long getShedCount() {
+        return shed.sum();
+    }
+    
+    /**
+     * Opens sessions one at a time until the pool is full, each open starting
+     * the next when it completes. Nothing here waits: the maintenance thread
+     * also expires queued commands and probes the breaker, and must not sit
+     * out a connect timeout while the server is down.
+     */
+    private void warmUp() {
+        CompletableFuture<RconConnection> future;
+        synchronized (connections) {
+            removeBroken();
+            if (closed || opening != null || connections.size() >= config.getPoolSize()) {
+                return;
+            }
+            future = startOpen();
+        }
+        
+        future.whenComplete((connection, error) -> {
+            if (error != null) {
+                log.warn("RCON pool warm-up failed: {}", unwrap(error).getMessage());
+            } else {
+                warmUp();
+            }
+        });
+    }
+    
+    private void keepalive() {
+        long cutoff = System.currentTimeMillis() - config.getKeepaliveIntervalMs();
+        for (RconConnection connection : connections) {
+            if (connection.isOpen() && connection.getInFlight() == 0 && connection.getLastUsed() <= cutoff) {
+                connection.ping().thenAccept(healthy -> {
+                    if (!healthy) {
+                        log.info("Evicting broken RCON connection");
+                    }
+                });
+            }
+        }
+        
+        warmUp();
+    }
+    
+    /**
+     * Strips {@link CompletionException} wrappers and reports future timeouts
+     * as socket timeouts, so callers see the same exceptions as blocking I/O.
+     */
+    public static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof TimeoutException) {
+            return new SocketTimeoutException("RCON request timed out");
+        }
+        return cause;
+    }
+    
+    @Override
+    public void close() {
+        closed = true;
+        maintenance.shutdownNow();
+        connections.forEach(RconConnection::close);
+        connections.clear();
+        
+        failWaiting(new IllegalStateException("RCON connection pool is closed"));
+    }
+    
+    private void failWaiting(Exception error) {
+        List<RconCommand> dropped;
+        synchronized (waiting) {
+            dropped = waiting.drain();
+        }
+        for (RconCommand queued : dropped) {
+            if (queued.claim()) {
+                queued.future.completeExceptionally(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.whitelisthub.api.rcon;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Single selector thread that drives every RCON channel. Connection state is
+ * only touched on this thread; other threads hand work over with
+ * {@link #execute(Runnable)}.
+ */
+@Slf4j
+public class RconEventLoop implements Closeable {
+    
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    
+    private volatile boolean running = true;
+    
+    public RconEventLoop() throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this::run, "rcon-io");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+    
+    public void execute(Runnable task) {
+        if (inEventLoop()) {
+            task.run();
+            return;
+        }
+        tasks.add(task);
+        selector.wakeup();
+    }
+    
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+    
+    Selector selector() {
+        return selector;
+    }
+    
+    private void run() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                log.error("RCON selector failed: {}", e.getMessage());
+                break;
+            }
+            
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                runSafely(task);
+            }
+            
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (key.isValid()) {
+                    runSafely(() -> ((RconConnection) key.attachment()).handle(key));
+                }
+            }
+        }
+        
+        for (SelectionKey key : selector.keys()) {
+            ((RconConnection) key.attachment()).close();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            log.debug("Error closing RCON selector: {}", e.getMessage());
+        }
+    }
+    
+    private void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            log.error("Unexpected error on RCON I/O thread", e);
+        }
+    }
+    
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+}
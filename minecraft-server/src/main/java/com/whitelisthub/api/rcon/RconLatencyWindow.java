@@ -0,0 +1,51 @@
+package com.whitelisthub.api.rcon;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latencies of the most recent RCON commands, kept in a fixed ring so
+ * recording is one array store. Percentiles are recomputed from a sorted copy
+ * at most once every {@code RECOMPUTE_EVERY} samples.
+ */
+public class RconLatencyWindow {
+    
+    private static final int SIZE = 256;
+    private static final int MIN_SAMPLES = 20;
+    private static final int RECOMPUTE_EVERY = 16;
+    
+    private final AtomicLongArray samples = new AtomicLongArray(SIZE);
+    private final AtomicLong count = new AtomicLong();
+    
+    private volatile long[] sorted = new long[0];
+    private volatile long sortedAt = -RECOMPUTE_EVERY;
+    
+    public void record(long nanos) {
+        samples.lazySet((int) (count.getAndIncrement() & (SIZE - 1)), nanos);
+    }
+    
+    /**
+     * Returns the given percentile in nanoseconds, or {@code -1} until enough
+     * commands have been seen to make it meaningful.
+     */
+    public long percentile(double fraction) {
+        long seen = count.get();
+        if (seen < MIN_SAMPLES) {
+            return -1;
+        }
+        
+        long[] snapshot = sorted;
+        if (seen - sortedAt >= RECOMPUTE_EVERY) {
+            int size = (int) Math.min(seen, SIZE);
+            snapshot = new long[size];
+            for (int i = 0; i < size; i++) {
+                snapshot[i] = samples.get(i);
+            }
+            Arrays.sort(snapshot);
+            sorted = snapshot;
+            sortedAt = seen;
+        }
+        return snapshot[Math.min(snapshot.length - 1, (int) (snapshot.length * fraction))];
+    }
+}
@@ -0,0 +1,101 @@
+package com.whitelisthub.api.rcon;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.EOFException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RCON timings and failures, kept apart from the HTTP request metrics so a
+ * slow response can be attributed to the Minecraft server or to the API.
+ * Connect, auth and command latencies are histograms tagged by outcome;
+ * failed or rejected commands are counted by cause. The time commands spend
+ * queued for a slot is a histogram per priority class. Every meter is tagged
+ * with the {@code server} it belongs to.
+ */
+public class RconMetrics {
+    
+    private final MeterRegistry registry;
+    private final String server;
+    private final Timer connectSuccess;
+    private final Timer connectFailure;
+    private final Timer authSuccess;
+    private final Timer authFailure;
+    private final Timer commandSuccess;
+    private final Timer commandFailure;
+    private final Map<RconPriority, Timer> queueWait = new EnumMap<>(RconPriority.class);
+    
+    public RconMetrics(MeterRegistry registry, String server) {
+        this.registry = registry;
+        this.server = server;
+        this.connectSuccess = timer("rcon.connect", "TCP connect to the RCON port", "success");
+        this.connectFailure = timer("rcon.connect", "TCP connect to the RCON port", "failure");
+        this.authSuccess = timer("rcon.auth", "RCON login after connecting", "success");
+        this.authFailure = timer("rcon.auth", "RCON login after connecting", "failure");
+        this.commandSuccess = timer("rcon.command", "RCON command round trip", "success");
+        this.commandFailure = timer("rcon.command", "RCON command round trip", "failure");
+        for (RconPriority priority : RconPriority.values()) {
+            queueWait.put(priority, Timer.builder("rcon.queue.wait")
+                .description("Time from submitting an RCON command to sending it")
+                .tag("priority", priority.tag())
+                .tag("server", server)
+                .publishPercentileHistogram()
+                .register(registry));
+        }
+    }
+    
+    private Timer timer(String name, String description, String outcome) {
+        return Timer.builder(name)
+            .description(description)
+            .tag("outcome", outcome)
+            .tag("server", server)
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+    
+    void connect(long nanos, boolean success) {
+        (success ? connectSuccess : connectFailure).record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    void auth(long nanos, boolean success) {
+        (success ? authSuccess : authFailure).record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    void command(long nanos, Throwable error) {
+        if (error == null) {
+            commandSuccess.record(nanos, TimeUnit.NANOSECONDS);
+        } else {
+            commandFailure.record(nanos, TimeUnit.NANOSECONDS);
+            error(cause(error));
+        }
+    }
+    
+    void queueWait(RconPriority priority, long nanos) {
+        queueWait.get(priority).record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    void error(String cause) {
+        registry.counter("rcon.errors", "cause", cause, "server", server).increment();
+    }
+    
+    private static String cause(Throwable error) {
+        if (error instanceof SocketTimeoutException) {
+            return "timeout";
+        }
+        if (error instanceof ConnectException) {
+            return "connect";
+        }
+        if (error instanceof EOFException) {
+            return "closed";
+        }
+        if (error.getMessage() != null && error.getMessage().contains("authentication")) {
+            return "auth";
+        }
+        return "io";
+    }
+}
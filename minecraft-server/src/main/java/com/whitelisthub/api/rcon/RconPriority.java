@@ -0,0 +1,26 @@
+package com.whitelisthub.api.rcon;
+
+import java.util.Locale;
+
+/**
+ * Order in which queued RCON commands are sent. A queued command is only
+ * sent once no command of a higher class is waiting.
+ */
+public enum RconPriority {
+    /**
+     * Whitelist changes a user is waiting on.
+     */
+    WRITE,
+    /**
+     * Reads for a request, such as loading the whitelist for {@code /status}.
+     */
+    READ,
+    /**
+     * Work no request is waiting on.
+     */
+    BACKGROUND;
+    
+    public String tag() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,36 @@
+package com.whitelisthub.api.rcon;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Consumes the body of one command's reply straight out of the read buffer,
+ * one packet at a time, so a long reply never has to be copied into a single
+ * array or decoded into a {@link String} first.
+ * <p>
+ * Both methods run on the {@link RconEventLoop} thread and must not block. A
+ * parser is used for one attempt only; a retried command gets a new one.
+ */
+public interface RconReplyParser<T> {
+    
+    /**
+     * One packet's body, the {@code length} bytes at {@code offset} in
+     * {@code buffer}. A multi-byte character may be split across two calls.
+     * The bytes are only valid until this returns, and the buffer's position
+     * and limit must be left alone.
+     */
+    void accept(ByteBuffer buffer, int offset, int length);
+    
+    /**
+     * Called once the last packet of the reply has arrived. A
+     * {@link RuntimeException} fails the command.
+     */
+    T finish();
+    
+    /**
+     * Collects the whole reply as trimmed UTF-8 text, as plain
+     * {@code execute} calls do.
+     */
+    static RconReplyParser<String> text() {
+        return new RconTextReply();
+    }
+}
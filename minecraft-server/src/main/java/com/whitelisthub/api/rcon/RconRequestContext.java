@@ -0,0 +1,44 @@
+package com.whitelisthub.api.rcon;
+
+/**
+ * The client on whose behalf the current thread sends RCON commands, used to
+ * share the RCON queue fairly between clients. Set for the synchronous part
+ * of each HTTP request. Work that sends on behalf of a request from another
+ * thread must capture the client and enter it there, as
+ * {@code WhitelistWriteCoalescer} does for queued writes; anything else sent
+ * off the request thread has no client.
+ */
+public final class RconRequestContext {
+    
+    private static final ThreadLocal<String> CLIENT = new ThreadLocal<>();
+    
+    private RconRequestContext() {
+    }
+    
+    /**
+     * Makes {@code client} current until the returned scope is closed.
+     */
+    public static Scope enter(String client) {
+        String previous = CLIENT.get();
+        CLIENT.set(client);
+        return () -> {
+            if (previous == null) {
+                CLIENT.remove();
+            } else {
+                CLIENT.set(previous);
+            }
+        };
+    }
+    
+    /**
+     * The current client, or {@code null} outside a request.
+     */
+    public static String currentClient() {
+        return CLIENT.get();
+    }
+    
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,205 @@
+package com.whitelisthub.api.rcon;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The queue of commands waiting for an RCON slot. Commands leave in strict
+ * {@link RconPriority} order. Within one class, clients take turns, one
+ * command each, so a client polling hard cannot push others back.
+ * <p>
+ * When the queue is full, a new command displaces the newest command of the
+ * client with the most queued work in the lowest class below it. Within its
+ * own class, it displaces a client that has at least two more commands
+ * queued than its own client. Otherwise the new command is refused.
+ * <p>
+ * Not thread-safe; the pool guards it with its own lock.
+ */
+class RconScheduler {
+    
+    private final Map<RconPriority, Lane> lanes = new EnumMap<>(RconPriority.class);
+    private int size;
+    
+    RconScheduler() {
+        for (RconPriority priority : RconPriority.values()) {
+            lanes.put(priority, new Lane());
+        }
+    }
+    
+    /**
+     * Queues {@code command} if there is room for it among {@code capacity}
+     * commands. Returns {@code null} if it was simply added, the command it
+     * displaced, or {@code command} itself if it was refused.
+     */
+    RconCommand offer(RconCommand command, int capacity) {
+        RconCommand displaced = null;
+        if (size >= capacity) {
+            displaced = displaceFor(command);
+            if (displaced == null) {
+                return command;
+            }
+        }
+        lanes.get(command.priority).add(command);
+        size++;
+        return displaced;
+    }
+    
+    /**
+     * Removes the next command to send, skipping commands that were already
+     * claimed and moving expired ones to {@code expired}.
+     */
+    RconCommand poll(long now, List<RconCommand> expired) {
+        for (Lane lane : lanes.values()) {
+            RconCommand next;
+            while ((next = lane.poll()) != null) {
+                size--;
+                if (next.isClaimed()) {
+                    continue;
+                }
+                if (next.isExpired(now)) {
+                    expired.add(next);
+                    continue;
+                }
+                return next;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Takes out a queued command that was claimed elsewhere, such as by its
+     * deadline passing, so it no longer holds a place in the queue.
+     */
+    boolean remove(RconCommand command) {
+        if (!lanes.get(command.priority).remove(command)) {
+            return false;
+        }
+        size--;
+        return true;
+    }
+    
+    List<RconCommand> drain() {
+        List<RconCommand> drained = new ArrayList<>(size);
+        for (Lane lane : lanes.values()) {
+            RconCommand next;
+            while ((next = lane.poll()) != null) {
+                drained.add(next);
+            }
+        }
+        size = 0;
+        return drained;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    int size(RconPriority priority) {
+        return lanes.get(priority).size;
+    }
+    
+    private RconCommand displaceFor(RconCommand command) {
+        RconPriority[] priorities = RconPriority.values();
+        for (int i = priorities.length - 1; i > command.priority.ordinal(); i--) {
+            RconCommand victim = lanes.get(priorities[i]).removeFromLongest(null, 0);
+            if (victim != null) {
+                size--;
+                return victim;
+            }
+        }
+        
+        Lane own = lanes.get(command.priority);
+        RconCommand victim = own.removeFromLongest(command.client, own.queued(command.client) + 2);
+        if (victim != null) {
+            size--;
+        }
+        return victim;
+    }
+    
+    /**
+     * One priority class: a queue per client and the order in which clients
+     * take their turns.
+     */
+    private static final class Lane {
+        private final Map<String, ArrayDeque<RconCommand>> byClient = new HashMap<>();
+        private final ArrayDeque<String> turns = new ArrayDeque<>();
+        private int size;
+        
+        void add(RconCommand command) {
+            ArrayDeque<RconCommand> queue = byClient.get(command.client);
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                byClient.put(command.client, queue);
+                turns.addLast(command.client);
+            }
+            queue.addLast(command);
+            size++;
+        }
+        
+        RconCommand poll() {
+            String client = turns.pollFirst();
+            if (client == null) {
+                return null;
+            }
+            ArrayDeque<RconCommand> queue = byClient.get(client);
+            RconCommand next = queue.pollFirst();
+            if (queue.isEmpty()) {
+                byClient.remove(client);
+            } else {
+                turns.addLast(client);
+            }
+            size--;
+            return next;
+        }
+        
+        boolean remove(RconCommand command) {
+            ArrayDeque<RconCommand> queue = byClient.get(command.client);
+            if (queue == null || !queue.remove(command)) {
+                return false;
+            }
+            if (queue.isEmpty()) {
+                byClient.remove(command.client);
+                turns.remove(command.client);
+            }
+            size--;
+            return true;
+        }
+        
+        int queued(String client) {
+            ArrayDeque<RconCommand> queue = byClient.get(client);
+            return queue != null ? queue.size() : 0;
+        }
+        
+        /**
+         * Removes the newest command of the client with the longest queue,
+         * other than {@code except}, if it holds at least {@code atLeast}
+         * commands.
+         */
+        RconCommand removeFromLongest(String except, int atLeast) {
+            String longest = null;
+            int longestSize = Math.max(atLeast, 1) - 1;
+            for (Map.Entry<String, ArrayDeque<RconCommand>> entry : byClient.entrySet()) {
+                if (entry.getValue().size() > longestSize && !entry.getKey().equals(except)) {
+                    longest = entry.getKey();
+                    longestSize = entry.getValue().size();
+                }
+            }
+            if (longest == null) {
+                return null;
+            }
+            
+            ArrayDeque<RconCommand> queue = byClient.get(longest);
+            RconCommand victim = queue.pollLast();
+            if (queue.isEmpty()) {
+                byClient.remove(longest);
+                turns.remove(longest);
+            }
+            size--;
+            return victim;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.whitelisthub.api.rcon;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The whole reply as trimmed UTF-8 text, for commands whose replies are short.
+ */
+final class RconTextReply implements RconReplyParser<String> {
+    
+    private static final byte[] EMPTY = new byte[0];
+    
+    private byte[] body = EMPTY;
+    private int size;
+    
+    @Override
+    public void accept(ByteBuffer buffer, int offset, int length) {
+        if (size + length > body.length) {
+            body = Arrays.copyOf(body, Math.max(size + length, body.length * 2));
+        }
+        buffer.get(offset, body, size, length);
+        size += length;
+    }
+    
+    @Override
+    public String finish() {
+        return new String(body, 0, size, StandardCharsets.UTF_8).trim();
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
 
 @Slf4j
 @Component
@@ -19,6 +20,8 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
     
     private final ServerConfig serverConfig;
     
+    private final LongAdder failures = new LongAdder();
+    
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
                                    FilterChain filterChain) throws ServletException, IOException {
@@ -32,6 +35,7 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
         String expectedKey = serverConfig.getApiKey();
         
         if (apiKey == null || !apiKey.equals(expectedKey)) {
+            failures.increment();
             String ip = getClientIp(request);
             log.warn("[AUTH] Invalid API key attempt from {}", ip);
             
@@ -44,6 +48,10 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
     
+    public long getFailureCount() {
+        return failures.sum();
+    }
+    
     private String getClientIp(HttpServletRequest request) {
         String xForwardedFor = request.getHeader("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
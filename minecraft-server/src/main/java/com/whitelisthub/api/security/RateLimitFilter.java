@@ -1,64 +1,114 @@
 package com.whitelisthub.api.security;
 
+import com.whitelisthub.api.config.ServerConfig;
+import com.whitelisthub.api.rcon.RconRequestContext;
+import com.whitelisthub.api.service.ClusterService;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class RateLimitFilter extends OncePerRequestFilter {
     
-    private static final long RATE_LIMIT_WINDOW = 60000; // 1 minute
-    private static final int RATE_LIMIT_MAX = 10;
+    private final ServerConfig serverConfig;
+    private final ClusterService clusterService;
     
-    private final Map<String, RateLimitEntry> rateLimitMap = new ConcurrentHashMap<>();
+    private final List<Route> routes = new ArrayList<>();
+    private final LongAdder rejected = new LongAdder();
+    private RateLimiter defaultLimiter;
+    
+    @PostConstruct
+    public void init() {
+        ServerConfig.RateLimitConfig config = serverConfig.getRateLimit();
+        boolean shared = clusterService.isEnabled();
+        defaultLimiter = new RateLimiter(config.getCapacity(), config.getRefillPerMinute(), config.getMaxTrackedKeys(),
+            shared);
+        share("*", defaultLimiter);
+        for (ServerConfig.RouteLimit route : config.getRoutes()) {
+            RateLimiter limiter = new RateLimiter(route.getCapacity(), route.getRefillPerMinute(),
+                config.getMaxTrackedKeys(), shared);
+            routes.add(new Route(route.getPath(), limiter));
+            share(route.getPath(), limiter);
+        }
+    }
+    
+    /**
+     * In cluster mode, counts the tokens peers hand out against this node's
+     * buckets too, so a client gets the configured rate once across all
+     * nodes rather than once per node.
+     */
+    private void share(String name, RateLimiter limiter) {
+        if (clusterService.isEnabled()) {
+            clusterService.shareLimiter(name, limiter::drainTaken, limiter::charge);
+        }
+    }
     
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
                                    FilterChain filterChain) throws ServletException, IOException {
         
-        if (request.getRequestURI().equals("/api/health")) {
-            filterChain.doFilter(request, response);
-            return;
-        }
-        
+        String uri = request.getRequestURI();
         String ip = getClientIp(request);
-        long now = System.currentTimeMillis();
-        
-        RateLimitEntry entry = rateLimitMap.get(ip);
-        
-        if (entry == null) {
-            rateLimitMap.put(ip, new RateLimitEntry(1, now + RATE_LIMIT_WINDOW));
-            filterChain.doFilter(request, response);
+        if (!serverConfig.getRateLimit().isEnabled() || uri.equals("/api/health") || uri.equals("/api/whitelist/health")
+                || uri.equals("/actuator/prometheus")) {
+            proceed(ip, request, response, filterChain);
             return;
         }
         
-        if (now > entry.resetTime) {
-            entry.count = 1;
-            entry.resetTime = now + RATE_LIMIT_WINDOW;
-            filterChain.doFilter(request, response);
-            return;
-        }
+        long waitNanos = limiterFor(uri).tryAcquire(ip);
         
-        if (entry.count >= RATE_LIMIT_MAX) {
+        if (waitNanos > 0) {
+            rejected.increment();
             log.warn("[RATE_LIMIT] Exceeded for IP: {}", ip);
             
-            response.setStatus(HttpServletResponse.SC_TOO_MANY_REQUESTS);
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos))));
             response.setContentType("application/json");
             response.getWriter().write("{\"error\":\"Rate limit exceeded\"}");
             return;
         }
         
-        entry.count++;
-        filterChain.doFilter(request, response);
+        proceed(ip, request, response, filterChain);
+    }
+    
+    /**
+     * Runs the rest of the chain with the client recorded for RCON, so that
+     * the RCON queue is shared between clients by the same key as the rate
+     * limit.
+     */
+    private void proceed(String ip, HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RconRequestContext.Scope scope = RconRequestContext.enter(ip);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            scope.close();
+        }
+    }
+    
+    private RateLimiter limiterFor(String uri) {
+        for (Route route : routes) {
+            if (uri.startsWith(route.path())) {
+                return route.limiter();
+            }
+        }
+        return defaultLimiter;
     }
     
     private String getClientIp(HttpServletRequest request) {
@@ -69,13 +119,29 @@ public class RateLimitFilter extends OncePerRequestFilter {
         return request.getRemoteAddr();
     }
     
-    private static class RateLimitEntry {
-        int count;
-        long resetTime;
-        
-        RateLimitEntry(int count, long resetTime) {
-            this.count = count;
-            this.resetTime = resetTime;
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+    
+    public int getTrackedKeys() {
+        int tracked = defaultLimiter.getTrackedKeys();
+        for (Route route : routes) {
+            tracked += route.limiter().getTrackedKeys();
         }
+        return tracked;
     }
+    
+    /**
+     * Requests from new clients that were counted against the shared
+     * overflow bucket because the key table was full.
+     */
+    public long getOverflowCount() {
+        long overflowed = defaultLimiter.getOverflowed();
+        for (Route route : routes) {
+            overflowed += route.limiter().getOverflowed();
+        }
+        return overflowed;
+    }
+    
+    private record Route(String path, RateLimiter limiter) {}
 }
@@ -0,0 +1,151 @@
+package com.whitelisthub.api.security;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token buckets keyed by client. Each bucket is stored as the single instant
+ * at which it will be full again (the generic cell rate algorithm), so taking
+ * a token is one compare-and-set with no lock.
+ * <p>
+ * A bucket whose refill instant has passed behaves exactly like a missing
+ * one, so such idle entries are evicted freely. When the table is full of
+ * active clients, new keys share one overflow bucket instead of growing it.
+ * <p>
+ * A shared limiter also counts the tokens it hands out, so that peers in a
+ * cluster can {@link #charge} them to their own buckets.
+ */
+class RateLimiter {
+    
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxKeys;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong overflow;
+    private final AtomicLong lastSweep;
+    private final LongAdder overflowed = new LongAdder();
+    // Tokens taken per key since the last drainTaken(); null unless shared
+    private final Map<String, Integer> taken;
+    
+    RateLimiter(int capacity, int refillPerMinute, int maxKeys) {
+        this(capacity, refillPerMinute, maxKeys, false);
+    }
+    
+    RateLimiter(int capacity, int refillPerMinute, int maxKeys, boolean shared) {
+        long now = System.nanoTime();
+        this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / refillPerMinute;
+        this.burstNanos = intervalNanos * (capacity - 1);
+        this.maxKeys = maxKeys;
+        this.overflow = new AtomicLong(now);
+        this.lastSweep = new AtomicLong(now);
+        this.taken = shared ? new ConcurrentHashMap<>() : null;
+    }
+    
+    /**
+     * Takes a token for {@code key}. Returns 0 if one was available, otherwise
+     * how many nanoseconds until the next one is.
+     */
+    long tryAcquire(String key) {
+        long now = System.nanoTime();
+        if (now - lastSweep.get() > Math.max(SWEEP_INTERVAL_NANOS, burstNanos + intervalNanos)) {
+            sweep(now);
+        }
+        
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = track(key, now);
+        }
+        
+        while (true) {
+            long fullAt = bucket.get();
+            long base = fullAt - now > 0 ? fullAt : now;
+            long wait = base - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, base + intervalNanos)) {
+                if (taken != null) {
+                    taken.merge(key, 1, Integer::sum);
+                }
+                return 0;
+            }
+        }
+    }
+    
+    /**
+     * Takes {@code tokens} from {@code key}'s bucket for requests admitted
+     * elsewhere. Never waits or refuses; at worst the bucket ends up empty.
+     */
+    void charge(String key, int tokens) {
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = track(key, now);
+        }
+        
+        long limit = now + burstNanos + intervalNanos;
+        while (true) {
+            long fullAt = bucket.get();
+            long base = fullAt - now > 0 ? fullAt : now;
+            long next = Math.min(base + tokens * intervalNanos, limit);
+            if (next - fullAt <= 0 || bucket.compareAndSet(fullAt, next)) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Returns the tokens taken locally per key since the last call and
+     * starts counting afresh.
+     */
+    Map<String, Integer> drainTaken() {
+        if (taken == null || taken.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, Integer> drained = new HashMap<>();
+        for (String key : taken.keySet()) {
+            // remove() is atomic with merge(), so no token is counted twice or lost
+            Integer count = taken.remove(key);
+            if (count != null) {
+                drained.put(key, count);
+            }
+        }
+        return drained;
+    }
+    
+    private AtomicLong track(String key, long now) {
+        if (buckets.size() >= maxKeys) {
+            sweep(now);
+            if (buckets.size() >= maxKeys) {
+                overflowed.increment();
+                return overflow;
+            }
+        }
+        
+        AtomicLong created = new AtomicLong(now);
+        AtomicLong existing = buckets.putIfAbsent(key, created);
+        return existing != null ? existing : created;
+    }
+    
+    private void sweep(long now) {
+        long last = lastSweep.get();
+        if (now - last < SWEEP_INTERVAL_NANOS || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        buckets.entrySet().removeIf(entry -> entry.getValue().get() - now <= 0);
+    }
+    
+    int getTrackedKeys() {
+        return buckets.size();
+    }
+    
+    long getOverflowed() {
+        return overflowed.sum();
+    }
+}
@@ -0,0 +1,296 @@
+package com.whitelisthub.api.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.whitelisthub.api.audit.AuditEvent;
+import com.whitelisthub.api.audit.AuditRingBuffer;
+import com.whitelisthub.api.audit.AuditSegment;
+import com.whitelisthub.api.config.ServerConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+/**
+ * Append-only journal of audited API calls.
+ * <p>
+ * Request threads only build an {@link AuditEvent} and offer it to a bounded
+ * ring buffer; when the buffer is full the event is dropped and counted
+ * rather than delaying the request. A single writer thread drains the buffer
+ * and appends everything it finds with one write and one fsync, so under a
+ * burst each disk flush carries many events. Files are rotated at
+ * {@code segmentSizeBytes} and the oldest are deleted beyond
+ * {@code maxSegments}.
+ * <p>
+ * Queries read segments newest first and skip those whose index rules out a
+ * match.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AuditService {
+    
+    private static final int MAX_BATCH = 4096;
+    
+    private final ServerConfig serverConfig;
+    private final ObjectMapper objectMapper;
+    
+    private final List<AuditSegment> segments = new CopyOnWriteArrayList<>();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+    private final LongAdder segmentsSkipped = new LongAdder();
+    
+    private AuditRingBuffer<AuditEvent> buffer;
+    private Path directory;
+    private Thread writer;
+    private volatile boolean running;
+    
+    // Owned by the writer thread
+    private final ByteArrayOutputStream pendingBytes = new ByteArrayOutputStream(64 * 1024);
+    private FileChannel channel;
+    private AuditSegment active;
+    private long lastSegmentId;
+    
+    @PostConstruct
+    public void init() throws IOException {
+        ServerConfig.AuditConfig config = serverConfig.getAudit();
+        if (!config.isEnabled()) {
+            return;
+        }
+        
+        directory = Path.of(config.getDirectory()).toAbsolutePath();
+        Files.createDirectories(directory);
+        List<Path> existing = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "audit-*.log")) {
+            files.forEach(existing::add);
+        }
+        existing.sort(null);
+        for (Path file : existing) {
+            segments.add(AuditSegment.open(file, objectMapper));
+            lastSegmentId = Math.max(lastSegmentId, segmentId(file));
+        }
+        
+        buffer = new AuditRingBuffer<>(config.getBufferSize());
+        openSegment();
+        running = true;
+        writer = new Thread(this::run, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Audit journal in {} ({} segments)", directory, segments.size());
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Queues an event without blocking. With the journal disabled the event
+     * is logged instead, as before.
+     */
+    public void record(String action, String username, String ip, boolean success, Throwable error) {
+        String message = error != null ? error.getMessage() : null;
+        if (buffer == null) {
+            log.info("[AUDIT] action={}, username={}, ip={}, success={}, error={}, timestamp={}",
+                action, username, ip, success, message, LocalDateTime.now());
+            return;
+        }
+        if (!buffer.offer(new AuditEvent(System.currentTimeMillis(), action, username, ip, success, message))) {
+            dropped.increment();
+        }
+    }
+    
+    /**
+     * Returns up to {@code limit} events newest first. {@code username} and
+     * {@code action} may be {@code null} to match anything; the time range is
+     * inclusive. Events still in the buffer are not visible yet.
+     */
+    public List<AuditEvent> query(String username, String action, long from, long to, int limit) throws IOException {
+        if (buffer == null) {
+            throw new IllegalStateException("Audit journal is disabled");
+        }
+        
+        Predicate<AuditEvent> matches = event -> event.timestamp() >= from && event.timestamp() <= to
+            && (action == null || action.equals(event.action()))
+            && (username == null || username.equalsIgnoreCase(event.username()));
+        
+        List<AuditEvent> result = new ArrayList<>();
+        List<AuditSegment> snapshot = List.copyOf(segments);
+        for (int i = snapshot.size() - 1; i >= 0 && result.size() < limit; i--) {
+            AuditSegment segment = snapshot.get(i);
+            if (!segment.mightContain(username, action, from, to)) {
+                segmentsSkipped.increment();
+                continue;
+            }
+            
+            List<AuditEvent> found;
+            try {
+                found = segment.read(objectMapper, matches);
+            } catch (NoSuchFileException e) {
+                // Deleted by retention since the snapshot was taken
+                continue;
+            }
+            for (int j = found.size() - 1; j >= 0 && result.size() < limit; j--) {
+                result.add(found.get(j));
+            }
+        }
+        return result;
+    }
+    
+    private void run() {
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(serverConfig.getAudit().getFlushIntervalMs());
+        List<AuditEvent> batch = new ArrayList<>();
+        while (running || buffer.size() > 0) {
+            batch.clear();
+            if (buffer.drainTo(batch, MAX_BATCH) == 0) {
+                if (running) {
+                    LockSupport.parkNanos(this, idleNanos);
+                } else {
+                    // A producer has claimed a slot but not filled it yet
+                    Thread.onSpinWait();
+                }
+                continue;
+            }
+            write(batch);
+        }
+        closeSegment();
+    }
+    
+    private void write(List<AuditEvent> batch) {
+        ServerConfig.AuditConfig config = serverConfig.getAudit();
+        try {
+            if (channel == null) {
+                // The last rotation could not open a new segment
+                openSegment();
+            }
+            pendingBytes.reset();
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(pendingBytes)) {
+                json.setRootValueSeparator(null);
+                for (AuditEvent event : batch) {
+                    objectMapper.writeValue(json, event);
+                    json.writeRaw('\n');
+                    if (log.isDebugEnabled()) {
+                        log.debug("[AUDIT] {}", event);
+                    }
+                }
+            }
+            
+            ByteBuffer bytes = ByteBuffer.wrap(pendingBytes.toByteArray());
+            int length = bytes.remaining();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            if (config.isFsync()) {
+                channel.force(false);
+            }
+            active.append(batch, length);
+            written.add(batch.size());
+            
+            if (active.length() >= config.getSegmentSizeBytes()) {
+                closeSegment();
+                openSegment();
+                deleteOldSegments();
+            }
+        } catch (IOException e) {
+            writeFailures.add(batch.size());
+            log.warn("Failed to write {} audit events: {}", batch.size(), e.getMessage());
+        }
+    }
+    
+    private void openSegment() throws IOException {
+        lastSegmentId = Math.max(lastSegmentId + 1, System.currentTimeMillis());
+        Path file = directory.resolve(String.format("audit-%015d.log", lastSegmentId));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        active = new AuditSegment(file);
+        segments.add(active);
+    }
+    
+    private void closeSegment() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+            active.saveIndex();
+        } catch (IOException e) {
+            // The index is rebuilt from the file on the next start
+            log.warn("Failed to close audit segment {}: {}", active.getFile(), e.getMessage());
+        }
+        channel = null;
+    }
+    
+    private void deleteOldSegments() {
+        int maxSegments = serverConfig.getAudit().getMaxSegments();
+        while (segments.size() > maxSegments) {
+            AuditSegment oldest = segments.remove(0);
+            try {
+                Files.deleteIfExists(oldest.getFile());
+                Files.deleteIfExists(oldest.getIndexFile());
+            } catch (IOException e) {
+                log.warn("Failed to delete audit segment {}: {}", oldest.getFile(), e.getMessage());
+            }
+        }
+    }
+    
+    private static long segmentId(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring("audit-".length(), name.length() - ".log".length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    public long getWrittenCount() {
+        return written.sum();
+    }
+    
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+    
+    public long getWriteFailures() {
+        return writeFailures.sum();
+    }
+    
+    public long getSegmentsSkipped() {
+        return segmentsSkipped.sum();
+    }
+    
+    public int getBufferedCount() {
+        return buffer != null ? buffer.size() : 0;
+    }
+    
+    public int getSegmentCount() {
+        return segments.size();
+    }
+}
@@ -0,0 +1,420 @@
+package com.whitelisthub.api.service;
+
+import com.whitelisthub.api.cluster.ClusterProtocol;
+import com.whitelisthub.api.config.ServerConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Lets several API nodes behind one load balancer act as one, without an
+ * external store. Nodes know each other from {@code cluster.peers} and talk
+ * over UDP using {@link ClusterProtocol}:
+ * <ul>
+ *   <li>every {@code syncIntervalMs} each node reports the rate-limit tokens
+ *       it handed out, and every node charges them to its own buckets, so a
+ *       client gets the configured rate across the whole cluster rather than
+ *       once per node;</li>
+ *   <li>each node counts the whitelist writes it makes on every server and
+ *       sends the counts with its heartbeat, straight after a write and
+ *       every {@code heartbeatIntervalMs}. When a peer's count moves, the
+ *       cached whitelist of that server is dropped, so no node keeps serving
+ *       a list another node has changed. A lost datagram is repaired by the
+ *       next heartbeat.</li>
+ * </ul>
+ * Messages are signed with the shared secret and checked for replays.
+ * When the cluster is disabled every method is a no-op.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ClusterService {
+    
+    private final ServerConfig serverConfig;
+    
+    private final Map<String, SharedLimiter> limiters = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> writes = new ConcurrentHashMap<>();
+    private final Map<Long, Peer> peers = new ConcurrentHashMap<>();
+    private final AtomicBoolean heartbeatQueued = new AtomicBoolean();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    
+    private volatile Consumer<String> invalidationListener = server -> {};
+    
+    private ClusterProtocol protocol;
+    private String nodeName;
+    private List<String> peerAddresses;
+    private volatile List<InetSocketAddress> targets = List.of();
+    private volatile boolean unresolvedPeers;
+    private DatagramSocket socket;
+    private Thread receiver;
+    private ScheduledExecutorService sync;
+    
+    @PostConstruct
+    public void init() throws SocketException {
+        ServerConfig.ClusterConfig config = serverConfig.getCluster();
+        if (!config.isEnabled()) {
+            return;
+        }
+        
+        String secret = config.getSecret().isBlank() ? serverConfig.getApiKey() : config.getSecret();
+        protocol = new ClusterProtocol(new SecureRandom().nextLong(), secret);
+        nodeName = config.getNodeName().isBlank() ? defaultNodeName(config.getPort()) : config.getNodeName();
+        peerAddresses = List.copyOf(config.getPeers());
+        
+        socket = new DatagramSocket(new InetSocketAddress(config.getBindAddress(), config.getPort()));
+        resolvePeers();
+        
+        receiver = new Thread(this::receive, "cluster-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+        
+        sync = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cluster-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sync.scheduleWithFixedDelay(this::sendRateDeltas, config.getSyncIntervalMs(), config.getSyncIntervalMs(),
+            TimeUnit.MILLISECONDS);
+        sync.scheduleWithFixedDelay(this::heartbeat, 0, config.getHeartbeatIntervalMs(), TimeUnit.MILLISECONDS);
+        
+        log.info("Cluster node {} listening on {}:{} with {} peers", nodeName, config.getBindAddress(),
+            config.getPort(), peerAddresses.size());
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (sync == null) {
+            return;
+        }
+        sync.shutdown();
+        try {
+            sync.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Hand out the last tokens so peers do not under-count them
+        sendRateDeltas();
+        socket.close();
+    }
+    
+    public boolean isEnabled() {
+        return serverConfig.getCluster().isEnabled();
+    }
+    
+    /**
+     * Shares one rate limiter with the peers. {@code drain} returns and
+     * resets the tokens taken locally per key since the last call;
+     * {@code charge} is given the tokens peers took. Limiters are matched
+     * by {@code name}, so every node must configure the same routes.
+     */
+    public void shareLimiter(String name, Supplier<Map<String, Integer>> drain, BiConsumer<String, Integer> charge) {
+        limiters.put(name, new SharedLimiter(drain, charge));
+    }
+    
+    /**
+     * Sets the callback run, on the receiver thread, with the name of a
+     * server whose whitelist a peer has written.
+     */
+    public void onInvalidate(Consumer<String> listener) {
+        invalidationListener = listener;
+    }
+    
+    /**
+     * Tells the peers that this node wrote the whitelist of {@code server}.
+     * The heartbeat goes out on the sync thread, so concurrent writes share
+     * one datagram.
+     */
+    public void publishWrite(String server) {
+        if (sync == null) {
+            return;
+        }
+        writes.computeIfAbsent(server, ignored -> new AtomicLong()).incrementAndGet();
+        if (heartbeatQueued.compareAndSet(false, true)) {
+            try {
+                sync.execute(this::heartbeat);
+            } catch (RuntimeException e) {
+                // Shutting down
+                heartbeatQueued.set(false);
+            }
+        }
+    }
+    
+    private void heartbeat() {
+        heartbeatQueued.set(false);
+        try {
+            if (unresolvedPeers) {
+                resolvePeers();
+            }
+            
+            Map<String, Long> counts = new HashMap<>(writes.size() * 2);
+            writes.forEach((server, count) -> counts.put(server, count.get()));
+            send(protocol.heartbeat(nodeName, counts));
+            
+            ServerConfig.ClusterConfig config = serverConfig.getCluster();
+            long forgetAfter = 2 * Math.max(config.getPeerTimeoutMs(), config.getMaxClockSkewMs());
+            long now = System.currentTimeMillis();
+            peers.values().removeIf(peer -> now - peer.lastSeen > forgetAfter);
+        } catch (RuntimeException e) {
+            log.warn("Cluster heartbeat failed: {}", e.getMessage());
+        }
+    }
+    
+    private void sendRateDeltas() {
+        try {
+            limiters.forEach((name, limiter) -> {
+                Map<String, Integer> tokens = limiter.drain().get();
+                if (!tokens.isEmpty()) {
+                    for (byte[] datagram : protocol.rateDeltas(name, tokens)) {
+                        send(datagram);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Cluster rate sync failed: {}", e.getMessage());
+        }
+    }
+    
+    private void send(byte[] datagram) {
+        for (InetSocketAddress target : targets) {
+            try {
+                socket.send(new DatagramPacket(datagram, datagram.length, target));
+                sent.increment();
+            } catch (IOException e) {
+                log.debug("Failed to send to cluster peer {}: {}", target, e.getMessage());
+            }
+        }
+    }
+    
+    private void receive() {
+        byte[] buffer = new byte[ClusterProtocol.MAX_DATAGRAM * 2];
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        while (!socket.isClosed()) {
+            try {
+                packet.setLength(buffer.length);
+                socket.receive(packet);
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    log.warn("Cluster receive failed: {}", e.getMessage());
+                }
+                continue;
+            }
+            
+            ClusterProtocol.Message message;
+            try {
+                message = protocol.decode(packet.getData(), packet.getLength());
+            } catch (IOException e) {
+                rejected.increment();
+                log.debug("Rejected cluster datagram from {}: {}", packet.getSocketAddress(), e.getMessage());
+                continue;
+            }
+            if (message.sender() == protocol.getSender()) {
+                continue;
+            }
+            
+            long now = System.currentTimeMillis();
+            Peer peer = peers.computeIfAbsent(message.sender(), id -> new Peer(packet.getSocketAddress().toString()));
+            if (Math.abs(now - message.timestamp()) > serverConfig.getCluster().getMaxClockSkewMs()
+                    || !peer.accept(message.sequence())) {
+                rejected.increment();
+                continue;
+            }
+            peer.lastSeen = now;
+            received.increment();
+            
+            try {
+                handle(peer, message);
+            } catch (RuntimeException e) {
+                log.warn("Failed to apply cluster message from {}: {}", peer.node, e.getMessage());
+            }
+        }
+    }
+    
+    private void handle(Peer peer, ClusterProtocol.Message message) {
+        if (message instanceof ClusterProtocol.Heartbeat heartbeat) {
+            peer.node = heartbeat.node();
+            heartbeat.writes().forEach((server, count) -> {
+                Long previous = peer.writes.put(server, count);
+                if (!count.equals(previous != null ? previous : 0L)) {
+                    invalidations.increment();
+                    invalidationListener.accept(server);
+                }
+            });
+        } else if (message instanceof ClusterProtocol.RateDelta delta) {
+            SharedLimiter limiter = limiters.get(delta.limiter());
+            if (limiter != null) {
+                delta.tokens().forEach(limiter.charge());
+            }
+        }
+    }
+    
+    /**
+     * Resolves the configured peers, leaving out this node's own address so
+     * every node can be given the same list.
+     */
+    private void resolvePeers() {
+        int ownPort = serverConfig.getCluster().getPort();
+        List<InetSocketAddress> resolved = new ArrayList<>();
+        boolean unresolved = false;
+        for (String address : peerAddresses) {
+            int colon = address.lastIndexOf(':');
+            InetSocketAddress target;
+            try {
+                target = colon > 0
+                    ? new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)))
+                    : new InetSocketAddress(address, ownPort);
+            } catch (IllegalArgumentException e) {
+                log.warn("Invalid cluster peer address: {}", address);
+                continue;
+            }
+            if (target.isUnresolved()) {
+                // Retried with each heartbeat, e.g. until a container's DNS name exists
+                log.warn("Cannot resolve cluster peer {}", address);
+                unresolved = true;
+                continue;
+            }
+            if (target.getPort() != ownPort || !isLocal(target.getAddress())) {
+                resolved.add(target);
+            }
+        }
+        targets = List.copyOf(resolved);
+        unresolvedPeers = unresolved;
+    }
+    
+    private static boolean isLocal(InetAddress address) {
+        try {
+            return address.isAnyLocalAddress() || address.isLoopbackAddress()
+                || NetworkInterface.getByInetAddress(address) != null;
+        } catch (SocketException e) {
+            return false;
+        }
+    }
+    
+    private static String defaultNodeName(int port) {
+        try {
+            return InetAddress.getLocalHost().getHostName() + ":" + port;
+        } catch (IOException e) {
+            return "node:" + port;
+        }
+    }
+    
+    public String getNodeName() {
+        return nodeName;
+    }
+    
+    /**
+     * Peers heard from recently enough to be forgotten yet, with whether
+     * they are within {@code peerTimeoutMs}.
+     */
+    public List<PeerStatus> getPeers() {
+        long now = System.currentTimeMillis();
+        long timeout = serverConfig.getCluster().getPeerTimeoutMs();
+        List<PeerStatus> result = new ArrayList<>();
+        for (Peer peer : peers.values()) {
+            long age = now - peer.lastSeen;
+            result.add(new PeerStatus(peer.node, age <= timeout, age));
+        }
+        return result;
+    }
+    
+    public int getAlivePeerCount() {
+        long now = System.currentTimeMillis();
+        long timeout = serverConfig.getCluster().getPeerTimeoutMs();
+        int alive = 0;
+        for (Peer peer : peers.values()) {
+            if (now - peer.lastSeen <= timeout) {
+                alive++;
+            }
+        }
+        return alive;
+    }
+    
+    public long getSentCount() {
+        return sent.sum();
+    }
+    
+    public long getReceivedCount() {
+        return received.sum();
+    }
+    
+    /**
+     * Datagrams dropped for a bad signature, a stale timestamp or a replayed
+     * sequence number.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+    
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+    
+    public record PeerStatus(String node, boolean alive, long lastSeenMs) {}
+    
+    private record SharedLimiter(Supplier<Map<String, Integer>> drain, BiConsumer<String, Integer> charge) {}
+    
+    /**
+     * What we know about one peer process. Written only by the receiver
+     * thread.
+     */
+    private static class Peer {
+        private static final int WINDOW = 64;
+        
+        private final Map<String, Long> writes = new HashMap<>();
+        private volatile String node;
+        private volatile long lastSeen = System.currentTimeMillis();
+        private long highestSequence;
+        // Bit i set: highestSequence - i has been seen
+        private long seen;
+        
+        Peer(String address) {
+            this.node = address;
+        }
+        
+        /**
+         * Sliding replay window: accepts each sequence number once, tolerating
+         * datagrams reordered by up to {@link #WINDOW}.
+         */
+        boolean accept(long sequence) {
+            if (sequence > highestSequence) {
+                long shift = sequence - highestSequence;
+                seen = shift >= WINDOW ? 1 : (seen << shift) | 1;
+                highestSequence = sequence;
+                return true;
+            }
+            long offset = highestSequence - sequence;
+            if (offset >= WINDOW || (seen & (1L << offset)) != 0) {
+                return false;
+            }
+            seen |= 1L << offset;
+            return true;
+        }
+    }
+}
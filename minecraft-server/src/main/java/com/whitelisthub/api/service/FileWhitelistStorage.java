@@ -0,0 +1,374 @@
+package com.whitelisthub.api.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.whitelisthub.api.model.WhitelistEntry;
+import com.whitelisthub.api.rcon.RconPriority;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Edits the server's {@code whitelist.json} directly, for an API running on
+ * the same host as the server.
+ * <p>
+ * Writes are group-committed: everything queued while a flush is running (or
+ * during {@code flushWindowMs}) is applied together, written with one atomic
+ * file replacement and announced with one {@code whitelist reload} over RCON.
+ * A batch of N changes costs one write and one reload instead of N round
+ * trips. UUIDs for new entries come from {@link IdentityService}.
+ * <p>
+ * The file is watched, and edits made by anyone else, including the server
+ * itself, are read back in. All state is owned by a single thread.
+ */
+@Slf4j
+public class FileWhitelistStorage implements WhitelistStorage {
+    
+    private static final TypeReference<List<WhitelistEntry>> ENTRIES = new TypeReference<>() {};
+    
+    private final Path file;
+    private final long flushWindowMs;
+    private final boolean reload;
+    private final ObjectMapper objectMapper;
+    private final IdentityService identityService;
+    private final RconService rconService;
+    private final Runnable onExternalChange;
+    
+    private final ScheduledExecutorService executor;
+    private final Queue<PendingWrite> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder externalReloads = new LongAdder();
+    
+    // Owned by the executor thread
+    private Map<String, WhitelistEntry> entries = new LinkedHashMap<>();
+    private byte[] lastWritten;
+    
+    private volatile List<String> names = List.of();
+    private WatchService watchService;
+    
+    public FileWhitelistStorage(Path file, long flushWindowMs, boolean reload, ObjectMapper objectMapper,
+                                IdentityService identityService, RconService rconService, Runnable onExternalChange) {
+        this.file = file.toAbsolutePath();
+        this.flushWindowMs = flushWindowMs;
+        this.reload = reload;
+        this.objectMapper = objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT);
+        this.identityService = identityService;
+        this.rconService = rconService;
+        this.onExternalChange = onExternalChange;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "whitelist-file"));
+    }
+    
+    @Override
+    public void start() throws IOException {
+        try {
+            executor.submit(() -> {
+                readFile();
+                return null;
+            }).get();
+        } catch (Exception e) {
+            throw new IOException("Could not read " + file, e.getCause() != null ? e.getCause() : e);
+        }
+        
+        watchService = file.getFileSystem().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        daemon(this::watch, "whitelist-file-watcher").start();
+        log.info("Managing whitelist in {} ({} players)", file, names.size());
+    }
+    
+    @Override
+    public CompletableFuture<String> write(String action, String username) {
+        PendingWrite write = new PendingWrite(action, username);
+        pending.add(write);
+        if (flushScheduled.compareAndSet(false, true)) {
+            executor.schedule(this::flush, flushWindowMs, TimeUnit.MILLISECONDS);
+        }
+        return write.future;
+    }
+    
+    @Override
+    public CompletableFuture<List<String>> list() {
+        return CompletableFuture.completedFuture(names);
+    }
+    
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+    
+    @Override
+    public String getName() {
+        return "file";
+    }
+    
+    public long getFlushCount() {
+        return flushes.sum();
+    }
+    
+    public long getExternalReloadCount() {
+        return externalReloads.sum();
+    }
+    
+    private void flush() {
+        flushScheduled.set(false);
+        List<PendingWrite> batch = new ArrayList<>();
+        PendingWrite next;
+        while ((next = pending.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        
+        try {
+            Map<String, IdentityService.Identity> identities = resolveNewPlayers(batch);
+            boolean changed = false;
+            for (PendingWrite write : batch) {
+                changed |= apply(write, identities);
+            }
+            
+            if (changed) {
+                writeFile();
+                flushes.increment();
+                reloadServer();
+                log.debug("Applied {} whitelist writes to {} with one reload", batch.size(), file);
+            }
+            for (PendingWrite write : batch) {
+                if (write.failure != null) {
+                    write.future.completeExceptionally(write.failure);
+                } else {
+                    write.future.complete(write.reply);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to update {}: {}", file, e.getMessage());
+            // The file may not match the model any more; start again from what is on disk.
+            readQuietly();
+            IOException failure = e instanceof IOException io ? io : new IOException(e);
+            batch.forEach(write -> write.future.completeExceptionally(failure));
+        }
+    }
+    
+    /**
+     * Looks up UUIDs for every name the batch adds that is not whitelisted yet,
+     * in one call so online lookups are batched too.
+     */
+    private Map<String, IdentityService.Identity> resolveNewPlayers(List<PendingWrite> batch) {
+        List<String> missing = new ArrayList<>();
+        for (PendingWrite write : batch) {
+            if (write.action.equals("add") && !entries.containsKey(key(write.username))) {
+                missing.add(write.username);
+            }
+        }
+        
+        Map<String, IdentityService.Identity> identities = new HashMap<>();
+        if (!missing.isEmpty()) {
+            for (IdentityService.Identity identity : identityService.lookup(missing).join()) {
+                identities.put(key(identity.name()), identity);
+            }
+        }
+        return identities;
+    }
+    
+    private boolean apply(PendingWrite write, Map<String, IdentityService.Identity> identities) {
+        String key = key(write.username);
+        if (write.action.equals("add")) {
+            if (entries.containsKey(key)) {
+                write.reply = "Player is already whitelisted";
+                return false;
+            }
+            IdentityService.Identity identity = identities.get(key);
+            if (identity != null && identity.failed()) {
+                // Not the player's fault; fail this write so the caller retries
+                write.failure = new IOException("Could not look up the UUID of " + write.username);
+                return false;
+            }
+            if (identity == null || identity.uuid() == null) {
+                write.reply = "That player does not exist";
+                return false;
+            }
+            entries.put(key, new WhitelistEntry(identity.uuid(), write.username));
+            write.reply = "Added " + write.username + " to the whitelist";
+            return true;
+        }
+        
+        WhitelistEntry removed = entries.remove(key);
+        if (removed == null) {
+            write.reply = "Player is not whitelisted";
+            return false;
+        }
+        write.reply = "Removed " + removed.getName() + " from the whitelist";
+        return true;
+    }
+    
+    /**
+     * Replaces the file in one step, so the server never reads a half-written
+     * list.
+     */
+    private void writeFile() throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(new ArrayList<>(entries.values()));
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, json);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        lastWritten = json;
+        publishNames();
+    }
+    
+    private void reloadServer() {
+        if (!reload || !rconService.isEnabled()) {
+            return;
+        }
+        try {
+            RconService.await(rconService.executeCommandAsync("whitelist reload", RconPriority.WRITE));
+        } catch (IOException | RuntimeException e) {
+            // The file is already written; the server picks it up on its next reload or restart.
+            log.warn("Updated {} but 'whitelist reload' failed: {}", file, e.getMessage());
+        }
+    }
+    
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean ours = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    ours |= file.getFileName().equals(event.context());
+                }
+                key.reset();
+                if (ours) {
+                    executor.execute(this::reloadIfChanged);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+    
+    private void reloadIfChanged() {
+        try {
+            byte[] json = Files.readAllBytes(file);
+            if (json.length == 0 || Arrays.equals(json, lastWritten)) {
+                // Empty means truncated mid-write (the server does not replace atomically)
+                return;
+            }
+            parse(json);
+            lastWritten = json;
+            externalReloads.increment();
+            log.info("{} was changed outside the API; reloaded {} players", file, names.size());
+            onExternalChange.run();
+        } catch (NoSuchFileException e) {
+            // Mid-replace; the create event that follows reloads it
+        } catch (IOException e) {
+            // Possibly caught mid-write; the next modify event retries
+            log.debug("Could not reload {}: {}", file, e.getMessage());
+        }
+    }
+    
+    private void readFile() throws IOException {
+        if (!Files.exists(file)) {
+            entries = new LinkedHashMap<>();
+            publishNames();
+            return;
+        }
+        byte[] json = Files.readAllBytes(file);
+        parse(json);
+        lastWritten = json;
+    }
+    
+    private void readQuietly() {
+        try {
+            readFile();
+        } catch (IOException e) {
+            log.warn("Could not re-read {}: {}", file, e.getMessage());
+        }
+    }
+    
+    private void parse(byte[] json) throws IOException {
+        List<WhitelistEntry> parsed = json.length == 0 ? List.of() : objectMapper.readValue(json, ENTRIES);
+        Map<String, WhitelistEntry> loaded = new LinkedHashMap<>();
+        for (WhitelistEntry entry : parsed) {
+            if (entry != null && entry.getName() != null) {
+                loaded.put(key(entry.getName()), entry);
+            }
+        }
+        entries = loaded;
+        publishNames();
+    }
+    
+    private void publishNames() {
+        List<String> current = new ArrayList<>(entries.size());
+        for (WhitelistEntry entry : entries.values()) {
+            current.add(entry.getName());
+        }
+        names = List.copyOf(current);
+    }
+    
+    @Override
+    public void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("Error closing whitelist watcher: {}", e.getMessage());
+            }
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+    
+    private static Thread daemon(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+    
+    private static final class PendingWrite {
+        final String action;
+        final String username;
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        String reply;
+        IOException failure;
+        
+        PendingWrite(String action, String username) {
+            this.action = action;
+            this.username = username;
+        }
+    }
+}
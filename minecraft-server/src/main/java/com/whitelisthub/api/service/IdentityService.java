@@ -0,0 +1,280 @@
+package com.whitelisthub.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.whitelisthub.api.config.ServerConfig;
+import com.whitelisthub.api.identity.HttpProfileLookup;
+import com.whitelisthub.api.identity.IdentityCache;
+import com.whitelisthub.api.identity.ProfileLookup;
+import com.whitelisthub.api.model.WhitelistEntry;
+import com.whitelisthub.api.rcon.RconConnectionPool;
+import com.whitelisthub.api.util.UuidGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resolves whitelisted names to {@link WhitelistEntry} records.
+ * <p>
+ * In offline mode the UUID is derived from the name, which is cheaper than
+ * a cache lookup. In online mode names go through a bounded cache first;
+ * misses are split into batches of the lookup's size limit and queued, with
+ * at most {@code maxConcurrentLookups} requests in flight across all callers.
+ * Concurrent callers asking for the same name share one lookup. A failed lookup leaves
+ * the UUID {@code null} without caching anything, so the next call retries.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IdentityService {
+    
+    private final ServerConfig serverConfig;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<ProfileLookup> profileLookups;
+    
+    private final Map<String, CompletableFuture<UUID>> inFlight = new ConcurrentHashMap<>();
+    private final Queue<List<String>> queued = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger activeLookups = new AtomicInteger();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder lookupFailures = new LongAdder();
+    
+    private ProfileLookup profileLookup;
+    private IdentityCache cache;
+    private Path cacheFile;
+    private ScheduledExecutorService saver;
+    
+    @PostConstruct
+    public void init() {
+        ServerConfig.IdentityConfig config = serverConfig.getIdentity();
+        cache = new IdentityCache(config.getCacheSize(), config.getTtlMs(), config.getNegativeTtlMs());
+        profileLookup = profileLookups.getIfAvailable(() -> new HttpProfileLookup(
+            config.getProfileUrl(), config.getBatchSize(), config.getTimeoutMs(), objectMapper));
+        
+        if (config.getCacheFile() == null || config.getCacheFile().isBlank()) {
+            return;
+        }
+        cacheFile = Path.of(config.getCacheFile());
+        try {
+            int loaded = cache.load(cacheFile);
+            if (loaded > 0) {
+                log.info("Loaded {} cached player identities from {}", loaded, cacheFile);
+            }
+        } catch (IOException e) {
+            log.warn("Could not read identity cache {}: {}", cacheFile, e.getMessage());
+        }
+        
+        if (config.getSaveIntervalMs() > 0) {
+            saver = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "identity-cache-saver");
+                thread.setDaemon(true);
+                return thread;
+            });
+            saver.scheduleWithFixedDelay(this::save, config.getSaveIntervalMs(), config.getSaveIntervalMs(),
+                TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (saver != null) {
+            saver.shutdownNow();
+        }
+        save();
+    }
+    
+    private void save() {
+        if (cacheFile == null) {
+            return;
+        }
+        try {
+            cache.save(cacheFile);
+        } catch (IOException e) {
+            log.warn("Could not write identity cache {}: {}", cacheFile, e.getMessage());
+        }
+    }
+    
+    /**
+     * Resolves {@code names} in order. Unknown names, and names whose lookup
+     * failed, come back with a {@code null} UUID.
+     */
+    public CompletableFuture<List<WhitelistEntry>> resolve(List<String> names) {
+        return lookup(names).thenApply(identities -> {
+            List<WhitelistEntry> entries = new ArrayList<>(identities.size());
+            for (Identity identity : identities) {
+                entries.add(new WhitelistEntry(identity.uuid(), identity.name()));
+            }
+            return entries;
+        });
+    }
+    
+    /**
+     * Like {@link #resolve}, but tells a name that does not exist (a
+     * {@code null} UUID) apart from one whose lookup failed ({@code failed}).
+     * The returned future itself never fails.
+     */
+    public CompletableFuture<List<Identity>> lookup(List<String> names) {
+        if (serverConfig.getMode() == ServerConfig.ServerMode.OFFLINE) {
+            List<Identity> identities = new ArrayList<>(names.size());
+            for (String name : names) {
+                identities.add(new Identity(name, UuidGenerator.generateOfflineUUID(name).toString(), false));
+            }
+            return CompletableFuture.completedFuture(identities);
+        }
+        
+        List<String> keys = new ArrayList<>(names.size());
+        for (String name : names) {
+            keys.add(name.toLowerCase(Locale.ROOT));
+        }
+        IdentityCache.Entry[] cached = cache.getAll(keys);
+        
+        List<CompletableFuture<UUID>> pending = new ArrayList<>();
+        List<String> toFetch = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        CompletableFuture<UUID>[] waits = (CompletableFuture<UUID>[]) new CompletableFuture<?>[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            if (cached[i] != null) {
+                continue;
+            }
+            CompletableFuture<UUID> mine = new CompletableFuture<>();
+            CompletableFuture<UUID> existing = inFlight.putIfAbsent(keys.get(i), mine);
+            waits[i] = existing != null ? existing : mine;
+            if (existing == null) {
+                toFetch.add(names.get(i));
+            }
+            pending.add(waits[i]);
+        }
+        
+        fetch(toFetch);
+        
+        return CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0]))
+            .handle((ignored, failure) -> {
+                List<Identity> identities = new ArrayList<>(names.size());
+                for (int i = 0; i < names.size(); i++) {
+                    // A failed lookup fails only its own names, not the whole call
+                    boolean failed = cached[i] == null && waits[i].isCompletedExceptionally();
+                    UUID uuid = cached[i] != null ? cached[i].uuid() : failed ? null : waits[i].join();
+                    identities.add(new Identity(names.get(i), uuid != null ? uuid.toString() : null, failed));
+                }
+                return identities;
+            });
+    }
+    
+    /**
+     * Queues {@code names} in batches of the lookup's size limit.
+     */
+    private void fetch(List<String> names) {
+        int batchSize = profileLookup.maxBatchSize();
+        for (int from = 0; from < names.size(); from += batchSize) {
+            queued.add(List.copyOf(names.subList(from, Math.min(names.size(), from + batchSize))));
+        }
+        drain();
+    }
+    
+    /**
+     * Starts queued batches while fewer than {@code maxConcurrentLookups}
+     * are in flight; each finished batch starts the next.
+     */
+    private void drain() {
+        int max = serverConfig.getIdentity().getMaxConcurrentLookups();
+        while (!queued.isEmpty()) {
+            int active = activeLookups.get();
+            if (active >= max) {
+                return;
+            }
+            if (!activeLookups.compareAndSet(active, active + 1)) {
+                continue;
+            }
+            
+            List<String> batch = queued.poll();
+            if (batch == null) {
+                activeLookups.decrementAndGet();
+                continue;
+            }
+            fetchBatch(batch).whenComplete((ignored, failure) -> {
+                activeLookups.decrementAndGet();
+                drain();
+            });
+        }
+    }
+    
+    private CompletableFuture<Void> fetchBatch(List<String> batch) {
+        lookups.increment();
+        CompletableFuture<Map<String, UUID>> lookup;
+        try {
+            lookup = profileLookup.lookup(batch);
+        } catch (RuntimeException e) {
+            lookup = CompletableFuture.failedFuture(e);
+        }
+        
+        return lookup.handle((found, failure) -> {
+            if (failure != null) {
+                lookupFailures.increment();
+                log.warn("Profile lookup for {} names failed: {}", batch.size(),
+                    RconConnectionPool.unwrap(failure).getMessage());
+            }
+            for (String name : batch) {
+                String key = name.toLowerCase(Locale.ROOT);
+                CompletableFuture<UUID> waiting = inFlight.remove(key);
+                if (failure != null) {
+                    if (waiting != null) {
+                        waiting.completeExceptionally(failure);
+                    }
+                    continue;
+                }
+                
+                UUID uuid = found != null ? found.get(key) : null;
+                cache.put(key, uuid);
+                if (waiting != null) {
+                    waiting.complete(uuid);
+                }
+            }
+            return null;
+        });
+    }
+    
+    public int getCacheSize() {
+        return cache.size();
+    }
+    
+    public long getCacheHits() {
+        return cache.getHits();
+    }
+    
+    public long getCacheMisses() {
+        return cache.getMisses();
+    }
+    
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+    
+    public long getLookupFailures() {
+        return lookupFailures.sum();
+    }
+    
+    /**
+     * One resolved name. {@code uuid} is {@code null} both for a name that
+     * does not exist and, with {@code failed} set, for one whose lookup
+     * failed and should be retried.
+     */
+    public record Identity(String name, String uuid, boolean failed) {}
+}
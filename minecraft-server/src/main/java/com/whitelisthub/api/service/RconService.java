@@ -1,21 +1,91 @@
 package com.whitelisthub.api.service;
 
 import com.whitelisthub.api.config.ServerConfig;
+import com.whitelisthub.api.rcon.RconBufferPool;
+import com.whitelisthub.api.rcon.RconConnectionPool;
+import com.whitelisthub.api.rcon.RconEventLoop;
+import com.whitelisthub.api.rcon.RconMetrics;
+import com.whitelisthub.api.rcon.RconPriority;
+import com.whitelisthub.api.rcon.RconReplyParser;
+import com.whitelisthub.api.rcon.RconRequestContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
-import java.net.Socket;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 
+/**
+ * RCON access to the server in the top-level {@code rcon} block and to every
+ * configured backend. All sessions share one I/O thread, but each server has
+ * its own pool with its own breaker, limit and timeouts, so one failing
+ * server does not affect commands sent to the others.
+ * <p>
+ * Commands are queued by priority and shared fairly between the clients in
+ * {@link RconRequestContext}. A read sent outside any request counts as
+ * background work.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class RconService {
     
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 64;
+    
     private final ServerConfig serverConfig;
+    private final MeterRegistry meterRegistry;
+    
+    private final Map<String, RconConnectionPool> pools = new LinkedHashMap<>();
+    
+    private RconEventLoop eventLoop;
+    private RconConnectionPool pool;
+    
+    @PostConstruct
+    public void init() throws IOException {
+        RconBufferPool buffers = new RconBufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+        if (isEnabled()) {
+            pool = openPool(serverConfig.getName(), serverConfig.getRcon(), buffers);
+        }
+        for (ServerConfig.BackendConfig backend : serverConfig.getBackends()) {
+            if (pools.containsKey(backend.getName()) || backend.getName().equals(serverConfig.getName())) {
+                throw new IllegalStateException("Duplicate server name: " + backend.getName());
+            }
+            if (backend.getRcon().isEnabled()) {
+                openPool(backend.getName(), backend.getRcon(), buffers);
+            }
+        }
+    }
+    
+    private RconConnectionPool openPool(String server, ServerConfig.RconConfig config, RconBufferPool buffers)
+            throws IOException {
+        if (eventLoop == null) {
+            eventLoop = new RconEventLoop();
+        }
+        RconConnectionPool opened = new RconConnectionPool(config, eventLoop, buffers,
+            new RconMetrics(meterRegistry, server));
+        opened.start();
+        pools.put(server, opened);
+        return opened;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        for (RconConnectionPool opened : pools.values()) {
+            opened.close();
+        }
+        if (eventLoop != null) {
+            eventLoop.close();
+        }
+    }
     
     public boolean isEnabled() {
         return serverConfig.getRcon().isEnabled();
@@ -26,89 +96,125 @@ public class RconService {
             throw new IllegalStateException("RCON is not enabled");
         }
         
-        ServerConfig.RconConfig rcon = serverConfig.getRcon();
-        
-        try (Socket socket = new Socket(rcon.getHost(), rcon.getPort())) {
-            socket.setSoTimeout(5000);
-            
-            DataInputStream input = new DataInputStream(socket.getInputStream());
-            DataOutputStream output = new DataOutputStream(socket.getOutputStream());
-            
-            int requestId = authenticate(input, output, rcon.getPassword());
-            if (requestId == -1) {
-                throw new IOException("RCON authentication failed");
+        return await(executeCommandAsync(command));
+    }
+    
+    /**
+     * Blocks on an RCON future, rethrowing its failure as the exception a
+     * blocking call would have thrown.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = RconConnectionPool.unwrap(e.getCause());
+            if (cause instanceof IOException io) {
+                throw io;
             }
-            
-            return sendCommand(input, output, requestId, command);
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for RCON response");
         }
     }
     
-    private int authenticate(DataInputStream input, DataOutputStream output, String password) throws IOException {
-        int requestId = (int) (Math.random() * Integer.MAX_VALUE);
-        
-        byte[] packet = createPacket(requestId, 3, password);
-        output.write(packet);
-        output.flush();
-        
-        RconPacket response = readPacket(input);
-        
-        if (response.requestId == requestId && response.type == 2) {
-            log.debug("RCON authenticated successfully");
-            return requestId;
+    /**
+     * Sends a command without blocking the caller. The future completes on
+     * the RCON I/O thread, so dependent stages must not block.
+     */
+    public CompletableFuture<String> executeCommandAsync(String command) {
+        return executeCommandAsync(command, RconPriority.READ);
+    }
+    
+    public CompletableFuture<String> executeCommandAsync(String command, RconPriority priority) {
+        if (!isEnabled()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("RCON is not enabled"));
         }
         
-        return -1;
+        return submit(pool, command, priority, RconReplyParser::text);
     }
     
-    private String sendCommand(DataInputStream input, DataOutputStream output, int requestId, String command) throws IOException {
-        byte[] packet = createPacket(requestId, 2, command);
-        output.write(packet);
-        output.flush();
-        
-        RconPacket response = readPacket(input);
-        
-        if (response.requestId == requestId && response.type == 0) {
-            return new String(response.body, java.nio.charset.StandardCharsets.UTF_8).trim();
+    /**
+     * {@link #executeCommandAsync(String)} against a named server: the
+     * top-level one or a configured backend.
+     */
+    public CompletableFuture<String> executeCommandAsync(String server, String command) {
+        return executeCommandAsync(server, command, RconPriority.READ);
+    }
+    
+    public CompletableFuture<String> executeCommandAsync(String server, String command, RconPriority priority) {
+        return executeCommandAsync(server, command, priority, RconReplyParser::text);
+    }
+    
+    /**
+     * Sends a command to a named server and parses its reply with a parser
+     * from {@code parser} while it is read, instead of collecting it into a
+     * string. Meant for commands with long replies.
+     */
+    public <T> CompletableFuture<T> executeCommandAsync(String server, String command, RconPriority priority,
+                                                        Supplier<? extends RconReplyParser<T>> parser) {
+        RconConnectionPool target = pools.get(server);
+        if (target == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("RCON is not enabled for " + server));
         }
         
-        return "";
+        return submit(target, command, priority, parser);
     }
     
-    private byte[] createPacket(int requestId, int type, String body) {
-        byte[] bodyBytes = body.getBytes(java.nio.charset.StandardCharsets.UTF_8);
-        int packetSize = 4 + 4 + bodyBytes.length + 2;
-        
-        ByteBuffer buffer = ByteBuffer.allocate(4 + packetSize);
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
-        buffer.putInt(packetSize);
-        buffer.putInt(requestId);
-        buffer.putInt(type);
-        buffer.put(bodyBytes);
-        buffer.put((byte) 0);
-        buffer.put((byte) 0);
-        
-        return buffer.array();
+    private static <T> CompletableFuture<T> submit(RconConnectionPool target, String command, RconPriority priority,
+                                                   Supplier<? extends RconReplyParser<T>> parser) {
+        String client = RconRequestContext.currentClient();
+        if (client == null && priority == RconPriority.READ) {
+            priority = RconPriority.BACKGROUND;
+        }
+        return target.execute(command, priority, client, parser);
     }
     
-    private RconPacket readPacket(DataInputStream input) throws IOException {
-        int length = Integer.reverseBytes(input.readInt());
-        
-        byte[] data = new byte[length];
-        input.readFully(data);
-        
-        ByteBuffer buffer = ByteBuffer.wrap(data);
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
-        
-        int requestId = buffer.getInt();
-        int type = buffer.getInt();
-        
-        byte[] body = new byte[length - 8];
-        buffer.get(body);
-        
-        return new RconPacket(requestId, type, body);
+    public boolean isEnabled(String server) {
+        return pools.containsKey(server);
+    }
+    
+    /**
+     * Pools by server name, for metrics and health reporting.
+     */
+    public Map<String, RconConnectionPool> getPools() {
+        return Collections.unmodifiableMap(pools);
+    }
+    
+    public int getPoolOpenCount() {
+        return pool != null ? pool.getOpenCount() : 0;
+    }
+    
+    public int getPoolInFlightCount() {
+        return pool != null ? pool.getInFlightCount() : 0;
+    }
+    
+    public int getPoolWaitingCount() {
+        return pool != null ? pool.getWaitingCount() : 0;
+    }
+    
+    public int getPoolWaitingCount(RconPriority priority) {
+        return pool != null ? pool.getWaitingCount(priority) : 0;
     }
     
-    private record RconPacket(int requestId, int type, byte[] body) {}
+    public int getConcurrencyLimit() {
+        return pool != null ? pool.getConcurrencyLimit() : 0;
+    }
+    
+    public String getBreakerState() {
+        return pool != null ? pool.getBreakerState().name().toLowerCase() : "disabled";
+    }
+    
+    public long getShedCount() {
+        return pool != null ? pool.getShedCount() : 0;
+    }
+    
+    public long getCommandTimeoutMs() {
+        return pool != null ? pool.getCommandTimeoutMs() : 0;
+    }
     
     public String escapeCommand(String command) {
         if (command == null) {
@@ -0,0 +1,45 @@
+package com.whitelisthub.api.service;
+
+import com.whitelisthub.api.rcon.RconPriority;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Manages the whitelist with {@code whitelist add/remove/list} over RCON, for
+ * servers on another host. The list reply is parsed as it is read, into a
+ * packed {@link WhitelistNames} table.
+ */
+public class RconWhitelistStorage implements WhitelistStorage {
+    
+    private final RconService rconService;
+    private final String server;
+    
+    public RconWhitelistStorage(RconService rconService, String server) {
+        this.rconService = rconService;
+        this.server = server;
+    }
+    
+    @Override
+    public CompletableFuture<String> write(String action, String username) {
+        return rconService.executeCommandAsync(server, "whitelist " + action + " " + rconService.escapeCommand(username),
+            RconPriority.WRITE);
+    }
+    
+    @Override
+    public CompletableFuture<List<String>> list() {
+        // Parsed on the RCON I/O thread while reading; sorted on the common pool, away from it
+        return rconService.executeCommandAsync(server, "whitelist list", RconPriority.READ, WhitelistListParser::new)
+            .thenApplyAsync(WhitelistNames::sortedIgnoreCase);
+    }
+    
+    @Override
+    public boolean isAvailable() {
+        return rconService.isEnabled(server);
+    }
+    
+    @Override
+    public String getName() {
+        return "rcon";
+    }
+}
@@ -0,0 +1,136 @@
+package com.whitelisthub.api.service;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * One Minecraft server the API manages: where its whitelist is stored, the
+ * cached snapshot of it and the per-username ordering of writes to it.
+ * Backends share nothing, so a slow or failing server only delays its own
+ * results.
+ */
+public class WhitelistBackend implements AutoCloseable {
+    
+    private final String name;
+    private final Set<String> groups = new HashSet<>();
+    private final WhitelistCache cache;
+    private final WhitelistWriteCoalescer writes;
+    private final WhitelistStorage storage;
+    private final Runnable onWrite;
+    
+    /**
+     * @param onWrite        run after every write the storage answered,
+     *                       whether or not it succeeded
+     * @param storageFactory builds the storage, given a callback that drops
+     *                       the cached snapshot when the whitelist changes
+     *                       behind the API's back
+     */
+    public WhitelistBackend(String name, Collection<String> groups, long cacheTtlMs, int changeLogSize,
+                            long coalesceWindowMs, Runnable onWrite,
+                            Function<Runnable, WhitelistStorage> storageFactory) {
+        this.name = name;
+        this.onWrite = onWrite;
+        for (String group : groups) {
+            this.groups.add(group.toLowerCase(Locale.ROOT));
+        }
+        this.cache = new WhitelistCache(cacheTtlMs, changeLogSize, this::loadWhitelist);
+        this.writes = new WhitelistWriteCoalescer(coalesceWindowMs, this::sendWrite);
+        this.storage = storageFactory.apply(cache::invalidate);
+    }
+    
+    public void start() throws IOException {
+        storage.start();
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Whether requests for {@code group} go to this server. A {@code null}
+     * group means every server, and each server is also a group of its own.
+     */
+    public boolean isIn(String group) {
+        return group == null || name.equalsIgnoreCase(group) || groups.contains(group.toLowerCase(Locale.ROOT));
+    }
+    
+    public boolean isAvailable() {
+        return storage.isAvailable();
+    }
+    
+    public CompletableFuture<String> write(String action, String username) {
+        return writes.submit(action, username);
+    }
+    
+    public CompletableFuture<WhitelistCache.Snapshot> snapshot() {
+        return cache.get();
+    }
+    
+    /**
+     * The cached snapshot even if it has expired; see
+     * {@link WhitelistCache#getStale}.
+     */
+    public CompletableFuture<WhitelistCache.Snapshot> staleSnapshot() {
+        return cache.getStale();
+    }
+    
+    public WhitelistCache getCache() {
+        return cache;
+    }
+    
+    public String getStorageName() {
+        return storage.getName();
+    }
+    
+    public long getWritesMerged() {
+        return writes.getMergedCount();
+    }
+    
+    public long getWritesSuperseded() {
+        return writes.getSupersededCount();
+    }
+    
+    /**
+     * Sends one whitelist write to the storage backend and applies its reply
+     * to the cache. Called by the coalescer, which keeps writes for one
+     * username in order.
+     */
+    private CompletableFuture<String> sendWrite(String action, String username) {
+        return storage.write(action, username)
+            .thenApply(response -> {
+                applyWrite(action, username, response);
+                return response;
+            })
+            .whenComplete((response, error) -> onWrite.run());
+    }
+    
+    private CompletableFuture<List<String>> loadWhitelist() {
+        return storage.list();
+    }
+    
+    /**
+     * Keeps the cached snapshot in line with a write the server acknowledged.
+     * Replies we do not recognise (already whitelisted, unknown player, ...)
+     * drop the snapshot so the next read asks the server.
+     */
+    private void applyWrite(String action, String username, String response) {
+        if (action.equals("add") && response.startsWith("Added")) {
+            cache.onAdded(username);
+        } else if (action.equals("remove") && response.startsWith("Removed")) {
+            cache.onRemoved(username);
+        } else {
+            cache.invalidate();
+        }
+    }
+    
+    @Override
+    public void close() {
+        storage.close();
+    }
+}
@@ -0,0 +1,332 @@
+package com.whitelisthub.api.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * In-memory snapshot of the server whitelist. Concurrent misses share one
+ * load, and successful writes are applied to the snapshot directly so
+ * callers read their own writes without another {@code whitelist list}.
+ * <p>
+ * Every membership change, whether made through this API or noticed when a
+ * reload differs from the previous snapshot, bumps a monotonically
+ * increasing version and is kept in a bounded change log.
+ * <p>
+ * A load that overlaps writes through this cache reapplies them to what it
+ * read, since the server may have answered {@code whitelist list} before
+ * they landed. A load that overlaps {@link #invalidate} cannot know what it
+ * missed, so it is installed already expired; after
+ * {@value #MAX_STALE_LOADS} of those in a row the next one is kept for the
+ * full TTL, so a steady stream of invalidations cannot turn every read into
+ * a reload.
+ * <p>
+ * Snapshots are sorted case-insensitively, which gives paging cursors a
+ * stable order and lets membership checks use binary search. They are kept
+ * as packed {@link WhitelistNames} tables: reloads are diffed, and writes
+ * applied, without turning every name into a string.
+ */
+public class WhitelistCache {
+    
+    static final int MAX_STALE_LOADS = 3;
+    
+    private final long ttlMs;
+    private final int changeLogSize;
+    private final Supplier<CompletableFuture<List<String>>> loader;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    
+    private final AtomicReference<CompletableFuture<Snapshot>> loading = new AtomicReference<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final List<Consumer<Change>> listeners = new CopyOnWriteArrayList<>();
+    
+    // Guarded by this
+    private final ArrayDeque<Change> changeLog = new ArrayDeque<>();
+    private final List<Write> writesDuringLoad = new ArrayList<>();
+    private long version;
+    private boolean loadRunning;
+    private boolean invalidatedDuringLoad;
+    private int staleLoads;
+    
+    private volatile Entry entry;
+    
+    public WhitelistCache(long ttlMs, int changeLogSize, Supplier<CompletableFuture<List<String>>> loader) {
+        this.ttlMs = ttlMs;
+        this.changeLogSize = changeLogSize;
+        this.loader = loader;
+    }
+    
+    public CompletableFuture<Snapshot> get() {
+        Entry current = entry;
+        if (current != null && System.currentTimeMillis() < current.expiresAt()) {
+            hits.increment();
+            return CompletableFuture.completedFuture(current.snapshot());
+        }
+        
+        misses.increment();
+        return load();
+    }
+    
+    /**
+     * The current snapshot even when it has expired, starting a reload in
+     * the background if it has. Waits for the server only before the first
+     * load.
+     */
+    public CompletableFuture<Snapshot> getStale() {
+        Entry current = entry;
+        if (current == null) {
+            misses.increment();
+            return load();
+        }
+        
+        if (System.currentTimeMillis() >= current.expiresAt()) {
+            // Failures surface to the next caller that waits on a load
+            load();
+        }
+        hits.increment();
+        return CompletableFuture.completedFuture(current.snapshot());
+    }
+    
+    private CompletableFuture<Snapshot> load() {
+        CompletableFuture<Snapshot> existing = loading.get();
+        if (existing != null) {
+            return existing;
+        }
+        
+        CompletableFuture<Snapshot> future = new CompletableFuture<>();
+        if (!loading.compareAndSet(null, future)) {
+            return loading.get();
+        }
+        
+        startLoad();
+        CompletableFuture<List<String>> result;
+        try {
+            result = loader.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((users, error) -> {
+            // Whatever happens, the next miss must start a new load rather than get this future
+            Throwable failure = error;
+            Snapshot loaded = null;
+            try {
+                if (failure == null) {
+                    loaded = install(sorted(users));
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                endLoad();
+            }
+            loading.compareAndSet(future, null);
+            
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(loaded);
+            }
+        });
+        return future;
+    }
+    
+    private synchronized void startLoad() {
+        loadRunning = true;
+        invalidatedDuringLoad = false;
+        writesDuringLoad.clear();
+    }
+    
+    private synchronized void endLoad() {
+        loadRunning = false;
+        writesDuringLoad.clear();
+    }
+    
+    private synchronized Snapshot install(WhitelistNames loaded) {
+        // The server may have listed the whitelist before these writes landed
+        WhitelistNames users = loaded;
+        for (Write write : writesDuringLoad) {
+            int index = users.indexOfIgnoreCase(write.username());
+            if (write.added() && index < 0) {
+                users = users.with(-index - 1, write.username());
+            } else if (!write.added() && index >= 0) {
+                users = users.without(index);
+            }
+        }
+        staleLoads = invalidatedDuringLoad ? staleLoads + 1 : 0;
+        boolean stale = invalidatedDuringLoad && staleLoads <= MAX_STALE_LOADS;
+        
+        Entry current = entry;
+        if (current == null) {
+            version++;
+        } else {
+            // Both sides are sorted, so one pass finds every name only one of them has
+            WhitelistNames before = current.snapshot().users();
+            int i = 0;
+            int j = 0;
+            while (i < before.size() || j < users.size()) {
+                int order = i == before.size() ? 1 : j == users.size() ? -1 : before.compareIgnoreCase(i, users, j);
+                if (order < 0) {
+                    record("remove", before.get(i++));
+                } else if (order > 0) {
+                    record("add", users.get(j++));
+                } else {
+                    i++;
+                    j++;
+                }
+            }
+        }
+        
+        Snapshot snapshot = new Snapshot(users, version);
+        entry = new Entry(snapshot, stale ? 0 : System.currentTimeMillis() + ttlMs);
+        return snapshot;
+    }
+    
+    public synchronized void onAdded(String username) {
+        if (loadRunning) {
+            writesDuringLoad.add(new Write(true, username));
+        }
+        Entry current = entry;
+        if (current == null) {
+            return;
+        }
+        
+        WhitelistNames before = current.snapshot().users();
+        int index = before.indexOfIgnoreCase(username);
+        if (index >= 0) {
+            return;
+        }
+        
+        record("add", username);
+        entry = new Entry(new Snapshot(before.with(-index - 1, username), version), current.expiresAt());
+    }
+    
+    public synchronized void onRemoved(String username) {
+        if (loadRunning) {
+            writesDuringLoad.add(new Write(false, username));
+        }
+        Entry current = entry;
+        if (current == null) {
+            return;
+        }
+        
+        WhitelistNames before = current.snapshot().users();
+        int index = before.indexOfIgnoreCase(username);
+        if (index < 0) {
+            return;
+        }
+        
+        record("remove", before.get(index));
+        entry = new Entry(new Snapshot(before.without(index), version), current.expiresAt());
+    }
+    
+    /**
+     * Forces the next read to reload. The current snapshot is kept as the
+     * baseline the reload is diffed against.
+     */
+    public synchronized void invalidate() {
+        invalidatedDuringLoad |= loadRunning;
+        Entry current = entry;
+        if (current != null) {
+            entry = new Entry(current.snapshot(), 0);
+        }
+    }
+    
+    /**
+     * Returns the changes made after {@code since}, or {@code null} if the
+     * change log no longer reaches back that far and the caller needs the
+     * full snapshot.
+     */
+    public synchronized ChangeSet changesSince(long since) {
+        Entry current = entry;
+        if (current == null) {
+            return null;
+        }
+        
+        Snapshot snapshot = current.snapshot();
+        if (since == snapshot.version()) {
+            return new ChangeSet(snapshot, List.of());
+        }
+        
+        Change oldest = changeLog.peekFirst();
+        if (since > snapshot.version() || since < 0 || oldest == null || oldest.version() > since + 1) {
+            return null;
+        }
+        
+        List<Change> changes = new ArrayList<>();
+        for (Change change : changeLog) {
+            if (change.version() > since) {
+                changes.add(change);
+            }
+        }
+        return new ChangeSet(snapshot, changes);
+    }
+    
+    /**
+     * The version of the latest change, without waiting for a load.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+    
+    /**
+     * Calls {@code listener} with every change as it is recorded, in version
+     * order. It runs while the cache is locked, so it must hand the change
+     * off rather than act on it.
+     */
+    public void onChange(Consumer<Change> listener) {
+        listeners.add(listener);
+    }
+    
+    private void record(String action, String username) {
+        Change change = new Change(++version, action, username);
+        changeLog.addLast(change);
+        while (changeLog.size() > changeLogSize) {
+            changeLog.removeFirst();
+        }
+        for (Consumer<Change> listener : listeners) {
+            listener.accept(change);
+        }
+    }
+    
+    public String getEpoch() {
+        return epoch;
+    }
+    
+    /**
+     * Size of the current snapshot, or {@code -1} before the first load.
+     */
+    public int getSize() {
+        Entry current = entry;
+        return current != null ? current.snapshot().users().size() : -1;
+    }
+    
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    public long getMisses() {
+        return misses.sum();
+    }
+    
+    private static WhitelistNames sorted(List<String> users) {
+        return WhitelistNames.copyOf(users).sortedIgnoreCase();
+    }
+    
+    /**
+     * An immutable, case-insensitively sorted view of the whitelist.
+     */
+    public record Snapshot(WhitelistNames users, long version) {}
+    
+    public record Change(long version, String action, String username) {}
+    
+    public record ChangeSet(Snapshot snapshot, List<Change> changes) {}
+    
+    private record Entry(Snapshot snapshot, long expiresAt) {}
+    
+    private record Write(boolean added, String username) {}
+}
@@ -0,0 +1,404 @@
+package com.whitelisthub.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.whitelisthub.api.config.ServerConfig;
+import com.whitelisthub.api.rcon.RconConnectionPool;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes whitelist changes on the top-level server to Server-Sent Events
+ * subscribers, so dashboards no longer poll {@code /changes}.
+ * <p>
+ * The cache hands every change to one broadcaster thread, which formats it
+ * once and offers it to each subscriber's bounded queue. Sends happen on a
+ * pool of {@code senderThreads} threads, one drain at a time per subscriber,
+ * writing whatever has queued with a single flush. Writes block, so a client
+ * that stops reading holds a sender until the server's connection timeout
+ * fails the write; the pool is bounded so that stalled clients cannot pile
+ * up threads. A subscriber whose queue fills up is disconnected and counted;
+ * its browser reconnects with {@code Last-Event-ID} and picks up from the
+ * change log.
+ * <p>
+ * Event ids are {@code <epoch>-<version>}. A new stream opens with a
+ * {@code ready} event giving the version it starts after; {@code resumed}
+ * is {@code false} when the requested position is from an earlier run or
+ * older than the change log, and the client should re-read {@code /status}.
+ * <p>
+ * While anyone is subscribed the whitelist is re-read every
+ * {@code refreshIntervalMs}, so changes made in game reach subscribers too.
+ * That is one {@code whitelist list} for all of them, through the cache.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WhitelistEventService {
+    
+    private static final Event KEEPALIVE = new Event(-1, null, null, null);
+    
+    private final ServerConfig serverConfig;
+    private final WhitelistService whitelistService;
+    private final ObjectMapper objectMapper;
+    
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final LinkedBlockingQueue<WhitelistCache.Change> published = new LinkedBlockingQueue<>();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    
+    private WhitelistCache cache;
+    private ExecutorService senders;
+    private Thread broadcaster;
+    private volatile boolean running;
+    
+    @PostConstruct
+    public void init() {
+        cache = whitelistService.getPrimary().getCache();
+        cache.onChange(this::publish);
+        
+        AtomicInteger threads = new AtomicInteger();
+        int size = serverConfig.getEvents().getSenderThreads();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "whitelist-events-sender-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        pool.allowCoreThreadTimeOut(true);
+        senders = pool;
+        
+        running = true;
+        broadcaster = new Thread(this::run, "whitelist-events");
+        broadcaster.setDaemon(true);
+        broadcaster.start();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        broadcaster.interrupt();
+        try {
+            broadcaster.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+            subscriber.emitter.complete();
+        }
+        senders.shutdownNow();
+    }
+    
+    /**
+     * Opens a stream positioned after version {@code since} of run
+     * {@code epoch}, or at the current version when {@code since} is
+     * {@code null}. Fails with {@link IllegalStateException} when the server
+     * cannot be read or {@code maxSubscribers} streams are already open.
+     */
+    public SseEmitter subscribe(Long since, String epoch) {
+        if (!whitelistService.getPrimary().isAvailable()) {
+            throw new IllegalStateException(WhitelistService.UNAVAILABLE);
+        }
+        ServerConfig.EventsConfig config = serverConfig.getEvents();
+        if (subscribers.size() >= config.getMaxSubscribers()) {
+            throw new IllegalStateException("Too many event subscribers");
+        }
+        
+        SseEmitter emitter = new SseEmitter(config.getTimeoutMs());
+        Subscriber subscriber = new Subscriber(emitter, config.getBufferSize());
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> subscriber.close());
+        
+        // Registered before the position is read, so nothing recorded in between is missed
+        subscribers.add(subscriber);
+        cache.get().whenCompleteAsync((snapshot, error) -> {
+            if (error != null) {
+                subscriber.close();
+                emitter.completeWithError(RconConnectionPool.unwrap(error));
+                return;
+            }
+            start(subscriber, since, epoch);
+        }, senders);
+        return emitter;
+    }
+    
+    private void start(Subscriber subscriber, Long since, String epoch) {
+        boolean sameRun = epoch == null || epoch.equals(cache.getEpoch());
+        WhitelistCache.ChangeSet changeSet = since != null && sameRun ? cache.changesSince(since) : null;
+        
+        List<Event> first = new ArrayList<>();
+        if (changeSet != null) {
+            first.add(ready(since, true));
+            for (WhitelistCache.Change change : changeSet.changes()) {
+                first.add(changeEvent(change));
+            }
+            subscriber.start(first, changeSet.snapshot().version());
+        } else {
+            long version = cache.getVersion();
+            first.add(ready(version, false));
+            subscriber.start(first, version);
+        }
+    }
+    
+    private void publish(WhitelistCache.Change change) {
+        if (!subscribers.isEmpty()) {
+            published.offer(change);
+        }
+    }
+    
+    private void run() {
+        ServerConfig.EventsConfig config = serverConfig.getEvents();
+        long now = System.currentTimeMillis();
+        long nextKeepalive = now + config.getKeepaliveIntervalMs();
+        long nextRefresh = config.getRefreshIntervalMs() > 0 ? now + config.getRefreshIntervalMs() : Long.MAX_VALUE;
+        
+        while (running) {
+            try {
+                long wait = Math.min(nextKeepalive, nextRefresh) - System.currentTimeMillis();
+                WhitelistCache.Change change = published.poll(Math.max(wait, 0), TimeUnit.MILLISECONDS);
+                if (change != null) {
+                    fanOut(changeEvent(change));
+                }
+                
+                now = System.currentTimeMillis();
+                if (now >= nextKeepalive) {
+                    fanOut(KEEPALIVE);
+                    nextKeepalive = now + config.getKeepaliveIntervalMs();
+                }
+                if (now >= nextRefresh) {
+                    nextRefresh = now + config.getRefreshIntervalMs();
+                    if (!subscribers.isEmpty()) {
+                        refresh();
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Whitelist event broadcast failed: {}", e.getMessage());
+            }
+        }
+    }
+    
+    private void fanOut(Event event) {
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.offer(event)) {
+                // Too far behind to catch up; it can resume from the change log
+                dropped.increment();
+                subscriber.drop();
+            }
+        }
+    }
+    
+    private void refresh() {
+        cache.get().whenComplete((snapshot, error) -> {
+            if (error != null) {
+                log.debug("Whitelist refresh for event subscribers failed: {}",
+                    RconConnectionPool.unwrap(error).getMessage());
+            }
+        });
+    }
+    
+    private Event ready(long version, boolean resumed) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("version", version);
+        data.put("epoch", cache.getEpoch());
+        data.put("resumed", resumed);
+        return new Event(version, "ready", id(version), json(data));
+    }
+    
+    private Event changeEvent(WhitelistCache.Change change) {
+        return new Event(change.version(), change.action(), id(change.version()), json(change));
+    }
+    
+    private String id(long version) {
+        return cache.getEpoch() + "-" + version;
+    }
+    
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+    
+    public long getSentCount() {
+        return sent.sum();
+    }
+    
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+    
+    /**
+     * One formatted event. Keepalives have no name and a negative version,
+     * and are never filtered as duplicates.
+     */
+    private record Event(long version, String name, String id, String data) {
+        
+        SseEmitter.SseEventBuilder toSse() {
+            if (name == null) {
+                return SseEmitter.event().comment("keepalive");
+            }
+            return SseEmitter.event().id(id).name(name).data(data);
+        }
+    }
+    
+    private final class Subscriber {
+        
+        private final SseEmitter emitter;
+        private final int capacity;
+        
+        // Guarded by this
+        private ArrayDeque<Event> queue = new ArrayDeque<>();
+        private long lastVersion = -1;
+        private boolean started;
+        private boolean sending;
+        private boolean closed;
+        private boolean completeAfterSend;
+        
+        Subscriber(SseEmitter emitter, int capacity) {
+            this.emitter = emitter;
+            this.capacity = capacity;
+        }
+        
+        /**
+         * Queues an event without blocking. Returns {@code false} when the
+         * queue is full.
+         */
+        synchronized boolean offer(Event event) {
+            if (closed) {
+                return true;
+            }
+            if (event.version() >= 0) {
+                if (event.version() <= lastVersion) {
+                    return true;
+                }
+                lastVersion = event.version();
+            }
+            if (queue.size() >= capacity) {
+                return false;
+            }
+            queue.addLast(event);
+            schedule();
+            return true;
+        }
+        
+        /**
+         * Puts {@code first}, which covers every change up to {@code through},
+         * ahead of the live changes queued since the subscriber was
+         * registered, dropping any of those it already covers.
+         */
+        synchronized void start(List<Event> first, long through) {
+            ArrayDeque<Event> ordered = new ArrayDeque<>(first);
+            for (Event event : queue) {
+                if (event.version() > through) {
+                    ordered.addLast(event);
+                }
+            }
+            queue = ordered;
+            lastVersion = Math.max(lastVersion, through);
+            started = true;
+            schedule();
+        }
+        
+        private void schedule() {
+            if (started && !sending && !closed && !queue.isEmpty()) {
+                sending = true;
+                senders.execute(this::drain);
+            }
+        }
+        
+        private void drain() {
+            while (true) {
+                Set<ResponseBodyEmitter.DataWithMediaType> batch = new LinkedHashSet<>();
+                int changes = 0;
+                boolean complete = false;
+                synchronized (this) {
+                    if (closed || queue.isEmpty()) {
+                        sending = false;
+                        complete = completeAfterSend;
+                        completeAfterSend = false;
+                    } else {
+                        for (Event event : queue) {
+                            batch.addAll(event.toSse().build());
+                            if (event.version() >= 0) {
+                                changes++;
+                            }
+                        }
+                        queue.clear();
+                    }
+                }
+                if (batch.isEmpty()) {
+                    if (complete) {
+                        emitter.complete();
+                    }
+                    return;
+                }
+                try {
+                    // Whatever queued up while the last send was in progress goes out with one flush
+                    emitter.send(batch);
+                    sent.add(changes);
+                } catch (IOException | IllegalStateException e) {
+                    // The client went away; the container completes the emitter
+                    close();
+                    return;
+                }
+            }
+        }
+        
+        void close() {
+            synchronized (this) {
+                closed = true;
+                queue.clear();
+            }
+            subscribers.remove(this);
+        }
+        
+        /**
+         * Closes the subscriber and completes its stream. A send in progress
+         * holds the emitter until it returns, so its drain completes the
+         * stream then instead of tying up a second sender thread.
+         */
+        void drop() {
+            boolean completeNow;
+            synchronized (this) {
+                closed = true;
+                queue.clear();
+                completeNow = !sending;
+                completeAfterSend = sending;
+            }
+            subscribers.remove(this);
+            if (completeNow) {
+                senders.execute(emitter::complete);
+            }
+        }
+    }
+}
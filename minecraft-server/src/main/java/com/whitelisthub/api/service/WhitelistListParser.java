@@ -0,0 +1,80 @@
+package com.whitelisthub.api.service;
+
+import com.whitelisthub.api.rcon.RconReplyParser;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads a {@code whitelist list} reply such as
+ * {@code "There are 2 whitelisted player(s): Alice, Bob"} straight from the
+ * RCON packets into a {@link WhitelistNames} table. Everything up to the
+ * first colon is skipped and the rest is split on commas with surrounding
+ * whitespace trimmed. A reply without a colon, such as
+ * {@code "There are no whitelisted players"}, is an empty list.
+ * <p>
+ * The count in the header, when there is one, sizes the table up front so a
+ * large list is not copied over and over as it grows.
+ */
+public class WhitelistListParser implements RconReplyParser<WhitelistNames> {
+    
+    private static final int MAX_NAME_LENGTH = 16;
+    private static final int MAX_RESERVED = 1_000_000;
+    
+    private final WhitelistNames.Builder names = new WhitelistNames.Builder(256);
+    private boolean inList;
+    private int count;
+    private boolean inNumber;
+    private int trailingSpaces;
+    
+    @Override
+    public void accept(ByteBuffer buffer, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        if (!inList) {
+            byte b;
+            while (i < end && (b = buffer.get(i)) != ':') {
+                // Keep the last number in the header
+                boolean digit = b >= '0' && b <= '9';
+                if (digit) {
+                    count = Math.min(MAX_RESERVED, (inNumber ? count * 10 : 0) + b - '0');
+                }
+                inNumber = digit;
+                i++;
+            }
+            if (i == end) {
+                return;
+            }
+            inList = true;
+            names.reserve(count, count * MAX_NAME_LENGTH);
+            i++;
+        }
+        
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == ',') {
+                endName();
+            } else if (b == ' ' || b == '\t' || b == '\n' || b == '\r') {
+                // Leading whitespace is dropped; anything else may be inside a name
+                if (names.pending() > 0) {
+                    names.append(b);
+                    trailingSpaces++;
+                }
+            } else {
+                names.append(b);
+                trailingSpaces = 0;
+            }
+        }
+    }
+    
+    @Override
+    public WhitelistNames finish() {
+        endName();
+        return names.build();
+    }
+    
+    private void endName() {
+        names.truncate(trailingSpaces);
+        trailingSpaces = 0;
+        names.endName();
+    }
+}
@@ -0,0 +1,443 @@
+package com.whitelisthub.api.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of usernames packed into one byte array, with the start of
+ * each name in an int array. A 100 000 player whitelist takes two arrays
+ * instead of 100 000 strings; {@link #get} builds a string only when a
+ * caller asks for one.
+ * <p>
+ * Names are stored as UTF-8. While every name is ASCII, which Java edition
+ * names always are, comparisons and searches work on the bytes and agree with
+ * {@link String#CASE_INSENSITIVE_ORDER}; otherwise they fall back to strings.
+ */
+public final class WhitelistNames extends AbstractList<String> implements RandomAccess {
+    
+    private static final WhitelistNames EMPTY = new WhitelistNames(new byte[0], new int[1], 0, true, true);
+    
+    private final byte[] bytes;
+    private final int[] offsets;
+    private final int size;
+    private final boolean ascii;
+    private final boolean sorted;
+    
+    /**
+     * @param offsets start of each name, followed by the end of the last one;
+     *                both arrays may be longer than needed
+     */
+    private WhitelistNames(byte[] bytes, int[] offsets, int size, boolean ascii, boolean sorted) {
+        this.bytes = bytes;
+        this.offsets = offsets;
+        this.size = size;
+        this.ascii = ascii;
+        this.sorted = sorted;
+    }
+    
+    public static WhitelistNames empty() {
+        return EMPTY;
+    }
+    
+    public static WhitelistNames copyOf(Collection<String> names) {
+        if (names instanceof WhitelistNames packed) {
+            return packed;
+        }
+        Builder builder = new Builder(names.size() * 16);
+        for (String name : names) {
+            builder.add(name);
+        }
+        return builder.build();
+    }
+    
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        int start = offsets[index];
+        return new String(bytes, start, offsets[index + 1] - start, StandardCharsets.UTF_8);
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * This list sorted case-insensitively; {@code this} if it already is.
+     */
+    public WhitelistNames sortedIgnoreCase() {
+        if (sorted) {
+            return this;
+        }
+        
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        mergeSort(order, order.clone(), 0, size);
+        
+        byte[] packed = new byte[offsets[size]];
+        int[] starts = new int[size + 1];
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            int start = offsets[order[i]];
+            int length = offsets[order[i] + 1] - start;
+            System.arraycopy(bytes, start, packed, position, length);
+            starts[i] = position;
+            position += length;
+        }
+        starts[size] = position;
+        return new WhitelistNames(packed, starts, size, ascii, true);
+    }
+    
+    /**
+     * Binary search for {@code name} ignoring case, with the result
+     * convention of {@link java.util.Collections#binarySearch}. The list must
+     * be sorted.
+     */
+    public int indexOfIgnoreCase(String name) {
+        if (!sorted) {
+            throw new IllegalStateException("Names are not sorted");
+        }
+        
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int order = compareIgnoreCase(mid, name);
+            if (order < 0) {
+                low = mid + 1;
+            } else if (order > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+    
+    /**
+     * Up to {@code limit} names that start with {@code prefix}, ignoring case,
+     * as a view over this list. The list must be sorted, which keeps every
+     * match next to each other.
+     */
+    public List<String> withPrefix(String prefix, int limit) {
+        int from = indexOfIgnoreCase(prefix);
+        if (from < 0) {
+            from = -from - 1;
+        }
+        int to = from;
+        while (to < size && to - from < limit && startsWithIgnoreCase(to, prefix)) {
+            to++;
+        }
+        return subList(from, to);
+    }
+    
+    /**
+     * Whether the name at {@code index} starts with {@code prefix}, ignoring
+     * case.
+     */
+    public boolean startsWithIgnoreCase(int index, String prefix) {
+        int start = offsets[index];
+        int length = offsets[index + 1] - start;
+        if (!ascii) {
+            return get(index).regionMatches(true, 0, prefix, 0, prefix.length());
+        }
+        if (length < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = prefix.charAt(i);
+            if (c >= 0x80 || lower(bytes[start + i]) != lower((byte) c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Case-insensitive union of two sorted lists. Where both have a name,
+     * this list's spelling is kept.
+     */
+    public WhitelistNames union(WhitelistNames other) {
+        if (other.size == 0) {
+            return this;
+        }
+        if (size == 0) {
+            return other;
+        }
+        
+        byte[] packed = new byte[offsets[size] + other.offsets[other.size]];
+        int[] starts = new int[size + other.size + 1];
+        int count = 0;
+        int position = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            int order = i == size ? 1 : j == other.size ? -1 : compareIgnoreCase(i, other, j);
+            WhitelistNames from = order <= 0 ? this : other;
+            int index = order <= 0 ? i : j;
+            int start = from.offsets[index];
+            int length = from.offsets[index + 1] - start;
+            System.arraycopy(from.bytes, start, packed, position, length);
+            starts[count++] = position;
+            position += length;
+            if (order <= 0) {
+                i++;
+            }
+            if (order >= 0) {
+                j++;
+            }
+        }
+        starts[count] = position;
+        return new WhitelistNames(packed, starts, count, ascii && other.ascii, true);
+    }
+    
+    /**
+     * Compares this list's {@code index}th name with {@code other}'s
+     * {@code otherIndex}th, ignoring case.
+     */
+    public int compareIgnoreCase(int index, WhitelistNames other, int otherIndex) {
+        if (!ascii || !other.ascii) {
+            return String.CASE_INSENSITIVE_ORDER.compare(get(index), other.get(otherIndex));
+        }
+        
+        int i = offsets[index];
+        int end = offsets[index + 1];
+        int j = other.offsets[otherIndex];
+        int otherEnd = other.offsets[otherIndex + 1];
+        while (i < end && j < otherEnd) {
+            int a = lower(bytes[i++]);
+            int b = lower(other.bytes[j++]);
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return (end - i) - (otherEnd - j);
+    }
+    
+    private int compareIgnoreCase(int index, String name) {
+        if (!ascii) {
+            return String.CASE_INSENSITIVE_ORDER.compare(get(index), name);
+        }
+        
+        int i = offsets[index];
+        int end = offsets[index + 1];
+        int j = 0;
+        while (i < end && j < name.length()) {
+            char a = (char) bytes[i++];
+            char b = name.charAt(j++);
+            if (a != b) {
+                // Same steps as String.CASE_INSENSITIVE_ORDER
+                a = Character.toUpperCase(a);
+                b = Character.toUpperCase(b);
+                if (a != b) {
+                    a = Character.toLowerCase(a);
+                    b = Character.toLowerCase(b);
+                    if (a != b) {
+                        return a - b;
+                    }
+                }
+            }
+        }
+        return (end - i) - (name.length() - j);
+    }
+    
+    /**
+     * A copy with {@code name} inserted at {@code index}. Both arrays are
+     * copied, so this is linear in the size of the table.
+     */
+    public WhitelistNames with(int index, String name) {
+        byte[] added = name.getBytes(StandardCharsets.UTF_8);
+        int at = offsets[index];
+        int used = offsets[size];
+        
+        byte[] packed = new byte[used + added.length];
+        System.arraycopy(bytes, 0, packed, 0, at);
+        System.arraycopy(added, 0, packed, at, added.length);
+        System.arraycopy(bytes, at, packed, at + added.length, used - at);
+        
+        int[] starts = new int[size + 2];
+        System.arraycopy(offsets, 0, starts, 0, index + 1);
+        for (int i = index; i <= size; i++) {
+            starts[i + 1] = offsets[i] + added.length;
+        }
+        return new WhitelistNames(packed, starts, size + 1, ascii && added.length == name.length(), sorted);
+    }
+    
+    /**
+     * A copy without the name at {@code index}. Linear in the size of the
+     * table, like {@link #with}.
+     */
+    public WhitelistNames without(int index) {
+        int at = offsets[index];
+        int removed = offsets[index + 1] - at;
+        int used = offsets[size];
+        
+        byte[] packed = new byte[used - removed];
+        System.arraycopy(bytes, 0, packed, 0, at);
+        System.arraycopy(bytes, at + removed, packed, at, used - at - removed);
+        
+        int[] starts = new int[size];
+        System.arraycopy(offsets, 0, starts, 0, index + 1);
+        for (int i = index + 1; i < size; i++) {
+            starts[i] = offsets[i + 1] - removed;
+        }
+        return new WhitelistNames(packed, starts, size - 1, ascii, sorted);
+    }
+    
+    /**
+     * Compares two tables byte for byte rather than name by name.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof WhitelistNames other)) {
+            return super.equals(o);
+        }
+        if (size != other.size) {
+            return false;
+        }
+        for (int i = 0; i <= size; i++) {
+            if (offsets[i] - offsets[0] != other.offsets[i] - other.offsets[0]) {
+                return false;
+            }
+        }
+        return Arrays.equals(bytes, offsets[0], offsets[size], other.bytes, other.offsets[0], other.offsets[size]);
+    }
+    
+    /**
+     * Same value as {@link java.util.List#hashCode}, computed from the bytes
+     * while every name is ASCII.
+     */
+    @Override
+    public int hashCode() {
+        if (!ascii) {
+            return super.hashCode();
+        }
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            int name = 0;
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                name = 31 * name + bytes[j];
+            }
+            hash = 31 * hash + name;
+        }
+        return hash;
+    }
+    
+    private void mergeSort(int[] order, int[] scratch, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        // Sort each half into scratch, then merge the halves back into order
+        mergeSort(scratch, order, from, mid);
+        mergeSort(scratch, order, mid, to);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < mid && compareIgnoreCase(scratch[i], this, scratch[j]) <= 0)) {
+                order[k] = scratch[i++];
+            } else {
+                order[k] = scratch[j++];
+            }
+        }
+    }
+    
+    private static int lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+    
+    /**
+     * Appends names a byte at a time, as a streaming parser reads them.
+     */
+    public static final class Builder {
+        
+        private byte[] bytes;
+        private int[] offsets = new int[16];
+        private int size;
+        private int position;
+        private boolean ascii = true;
+        
+        public Builder(int expectedBytes) {
+            this.bytes = new byte[Math.max(16, expectedBytes)];
+        }
+        
+        /**
+         * Grows the arrays up front for {@code names} more names of
+         * {@code bytes} bytes in all.
+         */
+        public void reserve(int names, int bytes) {
+            if (position + bytes > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, position + bytes);
+            }
+            if (size + names + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, size + names + 2);
+            }
+        }
+        
+        /**
+         * Appends one byte to the name being built.
+         */
+        public void append(byte b) {
+            if (position == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[position++] = b;
+            ascii &= b >= 0;
+        }
+        
+        /**
+         * Number of bytes in the name being built.
+         */
+        public int pending() {
+            return position - offsets[size];
+        }
+        
+        /**
+         * Drops the last {@code count} bytes of the name being built.
+         */
+        public void truncate(int count) {
+            position -= count;
+        }
+        
+        /**
+         * Ends the name being built. An empty name is skipped.
+         */
+        public void endName() {
+            if (pending() == 0) {
+                return;
+            }
+            if (size + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[++size] = position;
+        }
+        
+        public void add(String name) {
+            byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+            for (byte b : encoded) {
+                append(b);
+            }
+            endName();
+        }
+        
+        /**
+         * The names ended so far. Arrays are shared, not copied, so the
+         * builder must not be used afterwards.
+         */
+        public WhitelistNames build() {
+            position = offsets[size];
+            return size == 0 ? EMPTY : new WhitelistNames(bytes, offsets, size, ascii, size == 1);
+        }
+    }
+}
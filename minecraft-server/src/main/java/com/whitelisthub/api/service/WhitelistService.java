@@ -1,94 +1,650 @@
 package com.whitelisthub.api.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.whitelisthub.api.config.ServerConfig;
+import com.whitelisthub.api.rcon.RconConnectionPool;
 import com.whitelisthub.api.util.UsernameValidator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+/**
+ * Manages the whitelist on the server in the top-level configuration and on
+ * every configured backend. Writes go to all servers in the requested group
+ * at once and report each server's result; reads merge the servers' cached
+ * snapshots. Every server is given at most {@code backendTimeoutMs}, so one
+ * that is slow or down is reported as failed without holding up the others.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class WhitelistService {
     
+    static final String UNAVAILABLE = "RCON is required for remote server management";
+    
     private final RconService rconService;
+    private final IdentityService identityService;
+    private final ClusterService clusterService;
     private final ServerConfig serverConfig;
+    private final ObjectMapper objectMapper;
+    
+    private final Map<String, MergedUsers> mergedUsers = new ConcurrentHashMap<>();
+    
+    private WhitelistBackend primary;
+    private List<WhitelistBackend> backends;
+    
+    @PostConstruct
+    public void init() throws IOException {
+        ServerConfig.StorageConfig storageConfig = serverConfig.getStorage();
+        primary = backend(serverConfig.getName(), serverConfig.getGroups(), invalidate -> {
+            if (storageConfig.getType() == ServerConfig.StorageType.FILE) {
+                return new FileWhitelistStorage(Path.of(storageConfig.getWhitelistFile()),
+                    storageConfig.getFlushWindowMs(), storageConfig.isReload(), objectMapper, identityService,
+                    rconService, invalidate);
+            }
+            return new RconWhitelistStorage(rconService, serverConfig.getName());
+        });
+        
+        List<WhitelistBackend> all = new ArrayList<>();
+        all.add(primary);
+        for (ServerConfig.BackendConfig config : serverConfig.getBackends()) {
+            all.add(backend(config.getName(), config.getGroups(),
+                invalidate -> new RconWhitelistStorage(rconService, config.getName())));
+        }
+        backends = List.copyOf(all);
+        clusterService.onInvalidate(this::invalidate);
+        
+        for (WhitelistBackend backend : backends) {
+            backend.start();
+        }
+        if (backends.size() > 1) {
+            log.info("Managing whitelists on {} servers", backends.size());
+        }
+    }
+    
+    private WhitelistBackend backend(String name, List<String> groups,
+                                     Function<Runnable, WhitelistStorage> storageFactory) {
+        return new WhitelistBackend(name, groups, serverConfig.getCache().getTtlMs(),
+            serverConfig.getCache().getChangeLogSize(), serverConfig.getWrite().getCoalesceWindowMs(),
+            () -> clusterService.publishWrite(name), storageFactory);
+    }
+    
+    /**
+     * Drops the cached whitelist of {@code server} after another cluster node
+     * wrote to it, so the next read here asks the server again.
+     */
+    private void invalidate(String server) {
+        for (WhitelistBackend backend : backends) {
+            if (backend.getName().equals(server)) {
+                backend.getCache().invalidate();
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (backends != null) {
+            backends.forEach(WhitelistBackend::close);
+        }
+    }
     
     public void addToWhitelist(String username) throws IOException {
-        if (!rconService.isEnabled()) {
-            throw new IllegalStateException("RCON is required for remote server management");
+        RconService.await(addToWhitelistAsync(username, null));
+    }
+    
+    /**
+     * Non-blocking {@link #addToWhitelist}, applied to every server in
+     * {@code group} ({@code null} for all). Validation failures, an unknown
+     * group, and failure on every server complete the future exceptionally;
+     * partial failure is reported in the result.
+     */
+    public CompletableFuture<WriteResult> addToWhitelistAsync(String username, String group) {
+        List<WhitelistBackend> targets;
+        try {
+            targets = availableTargets(group);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
         }
         
         if (!UsernameValidator.isValid(username)) {
-            throw new IllegalArgumentException("Invalid username format. Must be 3-16 alphanumeric characters and underscores.");
+            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                "Invalid username format. Must be 3-16 alphanumeric characters and underscores."));
         }
         
-        String sanitized = UsernameValidator.sanitize(username);
-        String command = "whitelist add " + rconService.escapeCommand(sanitized);
-        
-        String response = rconService.executeCommand(command);
-        log.info("Added {} to whitelist via RCON: {}", sanitized, response);
+        return fanOut("add", UsernameValidator.sanitize(username), targets);
     }
     
     public void removeFromWhitelist(String username) throws IOException {
-        if (!rconService.isEnabled()) {
-            throw new IllegalStateException("RCON is required for remote server management");
+        RconService.await(removeFromWhitelistAsync(username, null));
+    }
+    
+    /**
+     * Non-blocking {@link #removeFromWhitelist}; see
+     * {@link #addToWhitelistAsync(String, String)}.
+     */
+    public CompletableFuture<WriteResult> removeFromWhitelistAsync(String username, String group) {
+        List<WhitelistBackend> targets;
+        try {
+            targets = availableTargets(group);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
         }
         
         if (!UsernameValidator.isValid(username)) {
-            throw new IllegalArgumentException("Invalid username format");
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Invalid username format"));
+        }
+        
+        return fanOut("remove", UsernameValidator.sanitize(username), targets);
+    }
+    
+    /**
+     * Returns a validation error for a batch operation, or {@code null} if it
+     * can be sent as-is.
+     */
+    public String validateOperation(BatchOperation operation) {
+        if (operation == null || operation.action() == null) {
+            return "Action is required";
+        }
+        String action = operation.action().toLowerCase(Locale.ROOT);
+        if (!action.equals("add") && !action.equals("remove")) {
+            return "Action must be 'add' or 'remove'";
         }
+        if (!UsernameValidator.isValid(operation.username())) {
+            return "Invalid username format";
+        }
+        return null;
+    }
+    
+    /**
+     * Runs operations as a pipelined RCON stream, keeping at most
+     * {@code batch.window} operations outstanding. Each operation goes to
+     * every server in {@code group} and succeeds only if all of them accept
+     * it. Operations are pulled from the iterator lazily, so a streamed
+     * request body is never fully buffered. Results are handed to
+     * {@code sink} on the calling thread, in completion order.
+     * <p>
+     * An operation the iterator fails to produce, such as a malformed line,
+     * is reported as a failed result at its index. If the iterator itself
+     * fails, or has more than {@code batch.max-size} operations, the
+     * operations already sent are still reported before the error is thrown.
+     */
+    public void executeBatch(Iterator<BatchOperation> operations, String group, Consumer<BatchResult> sink)
+            throws IOException {
+        List<WhitelistBackend> targets = availableTargets(group);
         
-        String sanitized = UsernameValidator.sanitize(username);
-        String command = "whitelist remove " + rconService.escapeCommand(sanitized);
+        int window = serverConfig.getBatch().getWindow();
+        int maxSize = serverConfig.getBatch().getMaxSize();
+        BlockingQueue<BatchResult> completed = new LinkedBlockingQueue<>();
+        int submitted = 0;
+        int emitted = 0;
+        RuntimeException stopped = null;
         
-        String response = rconService.executeCommand(command);
-        log.info("Removed {} from whitelist via RCON: {}", sanitized, response);
+        try {
+            while (true) {
+                try {
+                    if (!operations.hasNext()) {
+                        break;
+                    }
+                } catch (RuntimeException e) {
+                    stopped = e;
+                    break;
+                }
+                if (submitted == maxSize) {
+                    stopped = new IllegalArgumentException("Batch exceeds maximum size of " + maxSize);
+                    break;
+                }
+                
+                while (submitted - emitted >= window) {
+                    sink.accept(completed.take());
+                    emitted++;
+                }
+                
+                int index = submitted++;
+                BatchOperation operation;
+                try {
+                    operation = operations.next();
+                } catch (RuntimeException e) {
+                    completed.add(BatchResult.failure(index, null, e.getMessage()));
+                    continue;
+                }
+                
+                String error = validateOperation(operation);
+                if (error != null) {
+                    completed.add(BatchResult.failure(index, operation, error));
+                    continue;
+                }
+                
+                String action = operation.action().toLowerCase(Locale.ROOT);
+                String sanitized = UsernameValidator.sanitize(operation.username());
+                
+                fanOut(action, sanitized, targets).whenComplete((result, failure) -> {
+                    if (failure == null) {
+                        completed.add(new BatchResult(index, action, sanitized, result.success(), result.message()));
+                    } else {
+                        completed.add(BatchResult.failure(index, operation, RconConnectionPool.unwrap(failure).getMessage()));
+                    }
+                });
+            }
+            
+            // Everything sent has reached the servers, so its result is reported even if the batch stops here
+            while (emitted < submitted) {
+                sink.accept(completed.take());
+                emitted++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while running whitelist batch");
+        }
+        
+        log.info("Processed whitelist batch of {} operations on {} servers", submitted, targets.size());
+        if (stopped != null) {
+            throw stopped;
+        }
     }
     
+    /**
+     * Status of the top-level server alone, whose version and epoch are the
+     * ones {@link #getChangesSince} uses.
+     */
     public WhitelistStatus getStatus() throws IOException {
-        if (!rconService.isEnabled()) {
-            throw new IllegalStateException("RCON is required for remote server management");
+        if (!primary.isAvailable()) {
+            throw new IllegalStateException(UNAVAILABLE);
         }
         
-        String command = "whitelist list";
-        String response = rconService.executeCommand(command);
+        WhitelistCache.Snapshot snapshot = RconService.await(primary.snapshot());
+        return toStatus(primary, snapshot, List.of(ServerStatus.of(primary, snapshot, 0)));
+    }
+    
+    /**
+     * Whitelist across every server in {@code group} ({@code null} for all).
+     * Completes immediately while the cached snapshots are fresh. With one
+     * server the version and epoch are that server's; with several the users
+     * are merged, and the version and epoch change whenever any server's
+     * snapshot, or the set of servers that answered, changes. Fails only if
+     * no server answers.
+     */
+    public CompletableFuture<WhitelistStatus> getStatusAsync(String group) {
+        return getStatusAsync(group, false);
+    }
+    
+    /**
+     * As {@link #getStatusAsync(String)}, but with {@code allowStale} an
+     * expired snapshot is used as it is while a reload runs in the
+     * background. For lookups that must not wait on the server.
+     */
+    public CompletableFuture<WhitelistStatus> getStatusAsync(String group, boolean allowStale) {
+        List<WhitelistBackend> targets;
+        try {
+            targets = availableTargets(group);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
         
-        List<String> users = parseWhitelistList(response);
+        long timeoutMs = serverConfig.getBackendTimeoutMs();
+        WhitelistCache.Snapshot[] snapshots = new WhitelistCache.Snapshot[targets.size()];
+        ServerStatus[] servers = new ServerStatus[targets.size()];
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        CompletableFuture<?>[] reads = new CompletableFuture<?>[targets.size()];
+        for (int i = 0; i < targets.size(); i++) {
+            int slot = i;
+            WhitelistBackend backend = targets.get(i);
+            long started = System.nanoTime();
+            CompletableFuture<WhitelistCache.Snapshot> read = backend.isAvailable()
+                ? (allowStale ? backend.staleSnapshot() : backend.snapshot()).copy()
+                : CompletableFuture.failedFuture(new IllegalStateException(UNAVAILABLE));
+            reads[i] = read.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((snapshot, failure) -> {
+                long latencyMs = elapsedMs(started);
+                if (failure == null) {
+                    snapshots[slot] = snapshot;
+                    servers[slot] = ServerStatus.of(backend, snapshot, latencyMs);
+                } else {
+                    Throwable cause = RconConnectionPool.unwrap(failure);
+                    firstFailure.compareAndSet(null, cause);
+                    servers[slot] = new ServerStatus(backend.getName(), false, -1, -1, latencyMs, describe(failure));
+                }
+            });
+        }
         
-        return new WhitelistStatus(users.size(), users, serverConfig.getMode().name().toLowerCase());
+        return CompletableFuture.allOf(reads).handle((ignored, failure) -> {
+            List<ServerStatus> serverList = List.of(servers);
+            if (targets.size() == 1) {
+                if (snapshots[0] == null) {
+                    throw new CompletionException(firstFailure.get());
+                }
+                return toStatus(targets.get(0), snapshots[0], serverList);
+            }
+            
+            long version = 0;
+            int answered = 0;
+            int epoch = 1;
+            for (int i = 0; i < targets.size(); i++) {
+                WhitelistBackend backend = targets.get(i);
+                boolean ok = snapshots[i] != null;
+                if (ok) {
+                    version += snapshots[i].version();
+                    answered++;
+                }
+                epoch = 31 * epoch + Objects.hash(backend.getName(), backend.getCache().getEpoch(), ok);
+            }
+            if (answered == 0) {
+                throw new CompletionException(firstFailure.get());
+            }
+            
+            WhitelistNames users = mergeUsers(group, snapshots);
+            return new WhitelistStatus(users.size(), users, serverConfig.getMode().name().toLowerCase(), version,
+                Integer.toString(epoch & Integer.MAX_VALUE, 36), serverList);
+        });
     }
     
-    private List<String> parseWhitelistList(String response) {
-        if (response == null || response.trim().isEmpty()) {
-            return new ArrayList<>();
+    /**
+     * Returns the adds and removes made on the top-level server after
+     * {@code since}, or {@code null} when the change log has rolled past
+     * that version (or it belongs to an earlier run) and the caller should
+     * fall back to {@link #getStatus()}.
+     */
+    public WhitelistChanges getChangesSince(long since) throws IOException {
+        if (!primary.isAvailable()) {
+            throw new IllegalStateException(UNAVAILABLE);
         }
         
-        try {
-            if (response.contains(":")) {
-                String[] parts = response.split(":", 2);
-                if (parts.length == 2) {
-                    String userList = parts[1].trim();
-                    if (!userList.isEmpty() && !userList.equals("There are no whitelisted players")) {
-                        String[] userArray = userList.split(",\\s*");
-                        return Arrays.stream(userArray)
-                            .map(String::trim)
-                            .filter(u -> !u.isEmpty())
-                            .toList();
+        WhitelistCache cache = primary.getCache();
+        RconService.await(cache.get());
+        WhitelistCache.ChangeSet changeSet = cache.changesSince(since);
+        if (changeSet == null) {
+            return null;
+        }
+        return new WhitelistChanges(changeSet.snapshot().version(), cache.getEpoch(), changeSet.changes());
+    }
+    
+    private WhitelistStatus toStatus(WhitelistBackend backend, WhitelistCache.Snapshot snapshot,
+                                     List<ServerStatus> servers) {
+        return new WhitelistStatus(snapshot.users().size(), snapshot.users(), serverConfig.getMode().name().toLowerCase(),
+            snapshot.version(), backend.getCache().getEpoch(), servers);
+    }
+    
+    /**
+     * Sends one write to every target at once. Each server gets its own
+     * timeout, so the result arrives once every server has answered or run
+     * out of time.
+     */
+    private CompletableFuture<WriteResult> fanOut(String action, String username, List<WhitelistBackend> targets) {
+        long timeoutMs = serverConfig.getBackendTimeoutMs();
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        List<CompletableFuture<ServerResult>> results = new ArrayList<>(targets.size());
+        for (WhitelistBackend backend : targets) {
+            long started = System.nanoTime();
+            // Copied so the timeout fails only this caller, not others sharing a coalesced write
+            CompletableFuture<String> reply = backend.isAvailable()
+                ? backend.write(action, username).copy()
+                : CompletableFuture.failedFuture(new IllegalStateException(UNAVAILABLE));
+            results.add(reply.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).handle((response, failure) -> {
+                long latencyMs = elapsedMs(started);
+                if (failure != null) {
+                    Throwable cause = RconConnectionPool.unwrap(failure);
+                    if (cause instanceof WhitelistWriteCoalescer.SupersededException) {
+                        // Not an error, but this request's state was not reached either
+                        return new ServerResult(backend.getName(), false, cause.getMessage(), latencyMs, true);
                     }
+                    firstFailure.compareAndSet(null, cause);
+                    return new ServerResult(backend.getName(), false, describe(failure), latencyMs, false);
+                }
+                if (action.equals("add")) {
+                    log.info("Added {} to whitelist on {}: {}", username, backend.getName(), response);
+                } else {
+                    log.info("Removed {} from whitelist on {}: {}", username, backend.getName(), response);
                 }
+                return new ServerResult(backend.getName(), true, response, latencyMs, false);
+            }));
+        }
+        
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<ServerResult> servers = new ArrayList<>(results.size());
+            for (CompletableFuture<ServerResult> result : results) {
+                servers.add(result.join());
+            }
+            if (firstFailure.get() != null && servers.stream().noneMatch(ServerResult::success)) {
+                throw new CompletionException(firstFailure.get());
             }
-        } catch (Exception e) {
-            log.warn("Error parsing whitelist response: {}", response, e);
+            return new WriteResult(servers);
+        });
+    }
+    
+    /**
+     * Servers in {@code group}. Fails with {@link IllegalArgumentException}
+     * for a group no server belongs to, and with
+     * {@link IllegalStateException} when none of them can be reached.
+     */
+    private List<WhitelistBackend> availableTargets(String group) {
+        String wanted = group == null || group.isBlank() ? null : group.trim();
+        List<WhitelistBackend> targets = new ArrayList<>();
+        boolean available = false;
+        for (WhitelistBackend backend : backends) {
+            if (backend.isIn(wanted)) {
+                targets.add(backend);
+                available |= backend.isAvailable();
+            }
+        }
+        if (targets.isEmpty()) {
+            throw new IllegalArgumentException("Unknown server or group: " + wanted);
+        }
+        if (!available) {
+            throw new IllegalStateException(UNAVAILABLE);
+        }
+        return targets;
+    }
+    
+    /**
+     * Case-insensitive union of the sorted snapshots that answered. The last
+     * merge per group is kept and reused while every input is unchanged, so a
+     * fresh cache costs no merging at all. When only one server answered its
+     * snapshot is used as it is.
+     */
+    private WhitelistNames mergeUsers(String group, WhitelistCache.Snapshot[] snapshots) {
+        String key = group == null ? "" : group.trim().toLowerCase(Locale.ROOT);
+        MergedUsers cached = mergedUsers.get(key);
+        if (cached != null && Arrays.equals(cached.inputs(), snapshots)) {
+            return cached.users();
         }
         
-        return new ArrayList<>();
+        WhitelistNames users = WhitelistNames.empty();
+        for (WhitelistCache.Snapshot snapshot : snapshots) {
+            if (snapshot != null) {
+                users = users.union(snapshot.users());
+            }
+        }
+        mergedUsers.put(key, new MergedUsers(snapshots.clone(), users));
+        return users;
+    }
+    
+    private static long elapsedMs(long startedNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+    
+    /**
+     * Takes the failure before {@link RconConnectionPool#unwrap}, which would
+     * turn the per-server timeout into a generic RCON timeout. Only that
+     * timeout arrives as a bare {@link TimeoutException}; one from further
+     * down is wrapped by the stages in between.
+     */
+    private String describe(Throwable failure) {
+        if (failure instanceof TimeoutException) {
+            return "No answer within " + serverConfig.getBackendTimeoutMs() + " ms";
+        }
+        return String.valueOf(RconConnectionPool.unwrap(failure).getMessage());
+    }
+    
+    /**
+     * Whitelist size on the top-level server as of the last snapshot,
+     * without contacting it; {@code -1} if it has not been read yet.
+     */
+    public int getCachedCount() {
+        return primary.getCache().getSize();
+    }
+    
+    /**
+     * The top-level server, whose changes {@link #getChangesSince} and the
+     * event stream report.
+     */
+    public WhitelistBackend getPrimary() {
+        return primary;
+    }
+    
+    public List<WhitelistBackend> getBackends() {
+        return backends;
+    }
+    
+    public long getCacheHits() {
+        return backends.stream().mapToLong(backend -> backend.getCache().getHits()).sum();
+    }
+    
+    public long getCacheMisses() {
+        return backends.stream().mapToLong(backend -> backend.getCache().getMisses()).sum();
+    }
+    
+    public String getStorageName() {
+        return primary.getStorageName();
+    }
+    
+    public long getWritesMerged() {
+        return backends.stream().mapToLong(WhitelistBackend::getWritesMerged).sum();
+    }
+    
+    public long getWritesSuperseded() {
+        return backends.stream().mapToLong(WhitelistBackend::getWritesSuperseded).sum();
     }
     
-    public record WhitelistStatus(int count, List<String> users, String mode) {}
+    public record WhitelistStatus(int count, WhitelistNames users, String mode, long version, String epoch,
+                                  List<ServerStatus> servers) {
+        public String etag() {
+            return "\"" + epoch + "-" + version + "\"";
+        }
+        
+        /**
+         * Returns up to {@code limit} users that sort after {@code after}, as a
+         * view over the snapshot. The cursor need not still be whitelisted.
+         */
+        public List<String> page(String after, int limit) {
+            int from = 0;
+            if (after != null && !after.isEmpty()) {
+                int index = users.indexOfIgnoreCase(after);
+                from = index >= 0 ? index + 1 : -index - 1;
+            }
+            return users.subList(from, (int) Math.min(users.size(), (long) from + limit));
+        }
+        
+        /**
+         * Cursor for the page after {@code page}, or {@code null} if it reaches
+         * the end of the list.
+         */
+        public String nextAfter(List<String> page) {
+            if (page.isEmpty()) {
+                return null;
+            }
+            String last = page.get(page.size() - 1);
+            return last.equals(users.get(users.size() - 1)) ? null : last;
+        }
+        
+        /**
+         * Whether {@code username} is on the list, ignoring case. A binary
+         * search over the packed snapshot; no strings are built.
+         */
+        public boolean contains(String username) {
+            return users.indexOfIgnoreCase(username) >= 0;
+        }
+        
+        /**
+         * Up to {@code limit} users whose name starts with {@code prefix},
+         * ignoring case, in list order.
+         */
+        public List<String> search(String prefix, int limit) {
+            return users.withPrefix(prefix, limit);
+        }
+    }
+    
+    /**
+     * One server's part of a status read; {@code count} and {@code version}
+     * are {@code -1} when it did not answer.
+     */
+    public record ServerStatus(String server, boolean success, int count, long version, long latencyMs,
+                               String error) {
+        static ServerStatus of(WhitelistBackend backend, WhitelistCache.Snapshot snapshot, long latencyMs) {
+            return new ServerStatus(backend.getName(), true, snapshot.users().size(), snapshot.version(), latencyMs, null);
+        }
+    }
+    
+    /**
+     * One server's answer to a write. {@code superseded} marks a write that
+     * a later, opposite request for the same player replaced before it was
+     * sent.
+     */
+    public record ServerResult(String server, boolean success, String message, long latencyMs,
+                               boolean superseded) {}
+    
+    /**
+     * Per-server outcome of one add or remove.
+     */
+    public record WriteResult(List<ServerResult> servers) {
+        public boolean success() {
+            return servers.stream().allMatch(ServerResult::success);
+        }
+        
+        public long succeeded() {
+            return servers.stream().filter(ServerResult::success).count();
+        }
+        
+        public boolean superseded() {
+            return servers.stream().anyMatch(ServerResult::superseded);
+        }
+        
+        /**
+         * The first server's reply, or the first failure and where it
+         * happened.
+         */
+        public String message() {
+            for (ServerResult server : servers) {
+                if (!server.success()) {
+                    return "Failed on " + server.server() + ": " + server.message();
+                }
+            }
+            return servers.get(0).message();
+        }
+    }
+    
+    private record MergedUsers(WhitelistCache.Snapshot[] inputs, WhitelistNames users) {}
+    
+    public record WhitelistChanges(long version, String epoch, List<WhitelistCache.Change> changes) {}
+    
+    public record BatchOperation(String action, String username) {}
+    
+    public record BatchResult(int index, String action, String username, boolean success, String message) {
+        static BatchResult failure(int index, BatchOperation operation, String message) {
+            return new BatchResult(index,
+                operation != null ? operation.action() : null,
+                operation != null ? operation.username() : null,
+                false, message);
+        }
+    }
 }
@@ -0,0 +1,36 @@
+package com.whitelisthub.api.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where {@link WhitelistService} reads and writes the whitelist. Replies to
+ * writes use the server's own wording ("Added X to the whitelist", "Player is
+ * already whitelisted", ...) so callers see the same messages whichever
+ * backend is configured.
+ */
+public interface WhitelistStorage extends AutoCloseable {
+    
+    /**
+     * Applies one {@code add} or {@code remove}. Called at most once per
+     * username at a time.
+     */
+    CompletableFuture<String> write(String action, String username);
+    
+    CompletableFuture<List<String>> list();
+    
+    boolean isAvailable();
+    
+    String getName();
+    
+    /**
+     * Called once before the first read or write.
+     */
+    default void start() throws IOException {
+    }
+    
+    @Override
+    default void close() {
+    }
+}
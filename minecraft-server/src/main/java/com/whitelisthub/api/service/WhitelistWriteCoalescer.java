@@ -0,0 +1,200 @@
+package com.whitelisthub.api.service;
+
+import com.whitelisthub.api.rcon.RconRequestContext;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Orders whitelist writes per username while different usernames proceed in
+ * parallel. Each username has at most one command in flight and one queued
+ * behind it:
+ * <ul>
+ *   <li>a request identical to the queued or in-flight command joins it
+ *       instead of sending another one;</li>
+ *   <li>a request that undoes the queued command replaces it, so
+ *       add, remove, add collapses to the single command that reaches the
+ *       final state. The replaced request fails with
+ *       {@link SupersededException}.</li>
+ * </ul>
+ * A positive window also holds the first write for an idle username briefly,
+ * so a burst that arrives together collapses before anything is sent.
+ * <p>
+ * Queued writes are sent later from whichever thread frees their username,
+ * so each one keeps the {@link RconRequestContext} client of the request that
+ * submitted it and is sent under that client.
+ */
+public class WhitelistWriteCoalescer {
+    
+    private static final int STRIPES = 64;
+    
+    private final long windowMs;
+    private final BiFunction<String, String, CompletableFuture<String>> sender;
+    private final Object[] locks = new Object[STRIPES];
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final LongAdder merged = new LongAdder();
+    private final LongAdder superseded = new LongAdder();
+    
+    /**
+     * @param sender sends one command for {@code (action, username)}; called
+     *               at most once per username at a time
+     */
+    public WhitelistWriteCoalescer(long windowMs, BiFunction<String, String, CompletableFuture<String>> sender) {
+        this.windowMs = windowMs;
+        this.sender = sender;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+    
+    public CompletableFuture<String> submit(String action, String username) {
+        String key = username.toLowerCase(Locale.ROOT);
+        String client = RconRequestContext.currentClient();
+        Write dispatch = null;
+        Write dropped = null;
+        CompletableFuture<String> result;
+        
+        synchronized (lock(key)) {
+            Lane lane = lanes.get(key);
+            if (lane == null) {
+                lane = new Lane();
+                lanes.put(key, lane);
+                lane.queued = new Write(action, username, client);
+                result = lane.queued.future;
+                if (windowMs > 0) {
+                    CompletableFuture.delayedExecutor(windowMs, TimeUnit.MILLISECONDS).execute(() -> promote(key));
+                } else {
+                    dispatch = start(lane);
+                }
+            } else if (lane.queued != null && lane.queued.action.equals(action)) {
+                merged.increment();
+                result = lane.queued.future;
+            } else if (lane.running != null && lane.running.action.equals(action)) {
+                // The in-flight command already reaches this state; anything queued in between is moot.
+                dropped = unqueue(lane);
+                merged.increment();
+                result = lane.running.future;
+            } else {
+                dropped = unqueue(lane);
+                lane.queued = new Write(action, username, client);
+                result = lane.queued.future;
+            }
+        }
+        
+        if (dropped != null) {
+            superseded.increment();
+            dropped.future.completeExceptionally(
+                new SupersededException("Superseded by a later " + action + " of " + dropped.username));
+        }
+        if (dispatch != null) {
+            send(key, dispatch);
+        }
+        return result;
+    }
+    
+    private void promote(String key) {
+        Write dispatch = null;
+        synchronized (lock(key)) {
+            Lane lane = lanes.get(key);
+            if (lane != null && lane.running == null) {
+                dispatch = start(lane);
+            }
+        }
+        if (dispatch != null) {
+            send(key, dispatch);
+        }
+    }
+    
+    private void send(String key, Write write) {
+        CompletableFuture<String> sent;
+        RconRequestContext.Scope scope = RconRequestContext.enter(write.client);
+        try {
+            sent = sender.apply(write.action, write.username);
+        } catch (RuntimeException e) {
+            sent = CompletableFuture.failedFuture(e);
+        } finally {
+            scope.close();
+        }
+        
+        sent.whenComplete((response, error) -> {
+            Write next;
+            synchronized (lock(key)) {
+                Lane lane = lanes.get(key);
+                lane.running = null;
+                next = lane.queued != null ? start(lane) : null;
+                if (next == null) {
+                    lanes.remove(key);
+                }
+            }
+            
+            if (error != null) {
+                write.future.completeExceptionally(error);
+            } else {
+                write.future.complete(response);
+            }
+            if (next != null) {
+                send(key, next);
+            }
+        });
+    }
+    
+    private static Write start(Lane lane) {
+        lane.running = lane.queued;
+        lane.queued = null;
+        return lane.running;
+    }
+    
+    private static Write unqueue(Lane lane) {
+        Write queued = lane.queued;
+        lane.queued = null;
+        return queued;
+    }
+    
+    private Object lock(String key) {
+        return locks[(key.hashCode() & 0x7fffffff) % STRIPES];
+    }
+    
+    public long getMergedCount() {
+        return merged.sum();
+    }
+    
+    public long getSupersededCount() {
+        return superseded.sum();
+    }
+    
+    private static final class Lane {
+        Write running;
+        Write queued;
+    }
+    
+    private static final class Write {
+        final String action;
+        final String username;
+        final String client;
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        
+        Write(String action, String username, String client) {
+            this.action = action;
+            this.username = username;
+            this.client = client;
+        }
+    }
+    
+    /**
+     * A queued write that a later, opposite write for the same username
+     * replaced before it was sent. Its state was never reached.
+     */
+    public static final class SupersededException extends RuntimeException {
+        
+        private static final long serialVersionUID = 1L;
+        
+        SupersededException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
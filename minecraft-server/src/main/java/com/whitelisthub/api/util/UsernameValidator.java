@@ -5,6 +5,7 @@ import java.util.regex.Pattern;
 public class UsernameValidator {
     
     private static final Pattern USERNAME_PATTERN = Pattern.compile("^[a-zA-Z0-9_]{3,16}$");
+    private static final Pattern PREFIX_PATTERN = Pattern.compile("^[a-zA-Z0-9_]{1,16}$");
     
     public static boolean isValid(String username) {
         if (username == null || username.trim().isEmpty()) {
@@ -13,6 +14,16 @@ public class UsernameValidator {
         return USERNAME_PATTERN.matcher(username.trim()).matches();
     }
     
+    /**
+     * Whether {@code prefix} could start a valid username.
+     */
+    public static boolean isValidPrefix(String prefix) {
+        if (prefix == null) {
+            return false;
+        }
+        return PREFIX_PATTERN.matcher(prefix.trim()).matches();
+    }
+    
     public static String sanitize(String username) {
         if (username == null) {
             return "";
@@ -1,40 +1,95 @@
 package com.whitelisthub.api.util;
 
 import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.UUID;
 
 public class UuidGenerator {
     
+    private static final byte[] OFFLINE_PREFIX = "OfflinePlayer:".getBytes(StandardCharsets.US_ASCII);
+    
+    // Usernames are short ASCII strings; anything longer than the buffer or non-ASCII takes the slow path.
+    private static final ThreadLocal<OfflineDigest> DIGEST = ThreadLocal.withInitial(OfflineDigest::new);
+    
+    /**
+     * Name-based (version 3) UUID the server assigns to a player in offline
+     * mode. Reuses a per-thread digest and buffers, so the only allocation is
+     * the returned {@link UUID}.
+     */
     public static UUID generateOfflineUUID(String username) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] hash = md.digest(("OfflinePlayer:" + username).getBytes(StandardCharsets.UTF_8));
-            
-            hash[6] &= 0x0f;
-            hash[6] |= 0x30;
-            hash[8] &= 0x3f;
-            hash[8] |= 0x80;
-            
-            long msb = 0;
-            long lsb = 0;
-            
-            for (int i = 0; i < 8; i++) {
-                msb = (msb << 8) | (hash[i] & 0xff);
-            }
-            
-            for (int i = 8; i < 16; i++) {
-                lsb = (lsb << 8) | (hash[i] & 0xff);
-            }
-            
-            return new UUID(msb, lsb);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("MD5 algorithm not available", e);
+        byte[] hash = DIGEST.get().hash(username);
+        
+        hash[6] &= 0x0f;
+        hash[6] |= 0x30;
+        hash[8] &= 0x3f;
+        hash[8] |= 0x80;
+        
+        long msb = 0;
+        long lsb = 0;
+        
+        for (int i = 0; i < 8; i++) {
+            msb = (msb << 8) | (hash[i] & 0xff);
         }
+        
+        for (int i = 8; i < 16; i++) {
+            lsb = (lsb << 8) | (hash[i] & 0xff);
+        }
+        
+        return new UUID(msb, lsb);
+    }
+    
+    /**
+     * Parses the undashed hex form used by Mojang's profile API.
+     */
+    public static UUID fromUndashed(String hex) {
+        if (hex == null || hex.length() != 32) {
+            throw new IllegalArgumentException("Expected 32 hex digits: " + hex);
+        }
+        return new UUID(Long.parseUnsignedLong(hex, 0, 16, 16), Long.parseUnsignedLong(hex, 16, 32, 16));
     }
     
     public static String uuidToString(UUID uuid) {
         return uuid.toString();
     }
+    
+    private static final class OfflineDigest {
+        private final MessageDigest md5;
+        private final byte[] input = new byte[OFFLINE_PREFIX.length + 64];
+        private final byte[] hash = new byte[16];
+        
+        OfflineDigest() {
+            try {
+                md5 = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("MD5 algorithm not available", e);
+            }
+            System.arraycopy(OFFLINE_PREFIX, 0, input, 0, OFFLINE_PREFIX.length);
+        }
+        
+        byte[] hash(String username) {
+            int length = OFFLINE_PREFIX.length;
+            boolean ascii = username.length() <= input.length - length;
+            for (int i = 0; ascii && i < username.length(); i++) {
+                char c = username.charAt(i);
+                ascii = c < 0x80;
+                input[length++] = (byte) c;
+            }
+            
+            if (ascii) {
+                md5.update(input, 0, length);
+            } else {
+                md5.update(OFFLINE_PREFIX);
+                md5.update(username.getBytes(StandardCharsets.UTF_8));
+            }
+            
+            try {
+                md5.digest(hash, 0, hash.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+            return hash;
+        }
+    }
 }
@@ -0,0 +1,97 @@
+package com.whitelisthub.api.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditRingBufferTest {
+    
+    @Test
+    void roundsCapacityUpToAPowerOfTwo() {
+        assertThat(new AuditRingBuffer<String>(5).capacity()).isEqualTo(8);
+        assertThat(new AuditRingBuffer<String>(8).capacity()).isEqualTo(8);
+    }
+    
+    @Test
+    void refusesElementsWhenFull() {
+        AuditRingBuffer<String> buffer = new AuditRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer("e" + i)).isTrue();
+        }
+        
+        assertThat(buffer.offer("e4")).isFalse();
+        assertThat(buffer.size()).isEqualTo(4);
+        
+        assertThat(drain(buffer, 1)).containsExactly("e0");
+        assertThat(buffer.offer("e4")).isTrue();
+        assertThat(drain(buffer, 10)).containsExactly("e1", "e2", "e3", "e4");
+    }
+    
+    @Test
+    void keepsOrderAcrossTheEndOfTheArray() {
+        AuditRingBuffer<String> buffer = new AuditRingBuffer<>(4);
+        for (int i = 0; i < 3; i++) {
+            buffer.offer("old" + i);
+        }
+        drain(buffer, 10);
+        
+        // Slots 3, 0, 1, 2
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer("new" + i)).isTrue();
+        }
+        
+        assertThat(drain(buffer, 10)).containsExactly("new0", "new1", "new2", "new3");
+        assertThat(buffer.size()).isZero();
+    }
+    
+    @Test
+    void stopsAtASlotThatIsClaimedButNotFilled() throws ReflectiveOperationException {
+        AuditRingBuffer<String> buffer = new AuditRingBuffer<>(4);
+        buffer.offer("e0");
+        // A producer that has claimed slot 1 but not written to it yet
+        int claimed = claim(buffer);
+        buffer.offer("e2");
+        
+        assertThat(drain(buffer, 10)).containsExactly("e0");
+        assertThat(buffer.size()).isEqualTo(2);
+        
+        fill(buffer, claimed, "e1");
+        assertThat(drain(buffer, 10)).containsExactly("e1", "e2");
+    }
+    
+    @Test
+    void drainsAtMostMax() {
+        AuditRingBuffer<String> buffer = new AuditRingBuffer<>(4);
+        buffer.offer("e0");
+        buffer.offer("e1");
+        
+        assertThat(drain(buffer, 1)).containsExactly("e0");
+        assertThat(drain(buffer, 1)).containsExactly("e1");
+        assertThat(drain(buffer, 1)).isEmpty();
+    }
+    
+    private static List<String> drain(AuditRingBuffer<String> buffer, int max) {
+        List<String> drained = new ArrayList<>();
+        buffer.drainTo(drained, max);
+        return drained;
+    }
+    
+    private static int claim(AuditRingBuffer<String> buffer) throws ReflectiveOperationException {
+        Field tail = AuditRingBuffer.class.getDeclaredField("tail");
+        tail.setAccessible(true);
+        return (int) ((AtomicLong) tail.get(buffer)).getAndIncrement() & (buffer.capacity() - 1);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static void fill(AuditRingBuffer<String> buffer, int index, String element) throws ReflectiveOperationException {
+        Field slots = AuditRingBuffer.class.getDeclaredField("slots");
+        slots.setAccessible(true);
+        ((AtomicReferenceArray<String>) slots.get(buffer)).set(index, element);
+    }
+}
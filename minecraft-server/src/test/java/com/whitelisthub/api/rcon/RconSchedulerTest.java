@@ -0,0 +1,197 @@
+package com.whitelisthub.api.rcon;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RconSchedulerTest {
+    
+    private static final long NOW = 1_000;
+    
+    private final RconScheduler scheduler = new RconScheduler();
+    
+    @Test
+    void sendsInStrictClassOrder() {
+        RconCommand background = command(RconPriority.BACKGROUND, "a");
+        RconCommand read = command(RconPriority.READ, "a");
+        RconCommand write = command(RconPriority.WRITE, "b");
+        scheduler.offer(background, 10);
+        scheduler.offer(read, 10);
+        scheduler.offer(write, 10);
+        
+        assertThat(pollAll()).containsExactly(write, read, background);
+        assertThat(scheduler.size()).isZero();
+    }
+    
+    @Test
+    void sendsAHigherClassQueuedLaterFirst() {
+        RconCommand background = command(RconPriority.BACKGROUND, "a");
+        scheduler.offer(background, 10);
+        scheduler.offer(command(RconPriority.BACKGROUND, "a"), 10);
+        assertThat(poll()).isSameAs(background);
+        
+        RconCommand write = command(RconPriority.WRITE, "b");
+        scheduler.offer(write, 10);
+        assertThat(poll()).isSameAs(write);
+    }
+    
+    @Test
+    void letsClientsTakeTurnsWithinAClass() {
+        RconCommand a1 = command(RconPriority.READ, "a");
+        RconCommand a2 = command(RconPriority.READ, "a");
+        RconCommand a3 = command(RconPriority.READ, "a");
+        RconCommand b1 = command(RconPriority.READ, "b");
+        RconCommand c1 = command(RconPriority.READ, "c");
+        RconCommand c2 = command(RconPriority.READ, "c");
+        for (RconCommand command : List.of(a1, a2, a3, b1, c1, c2)) {
+            assertThat(scheduler.offer(command, 10)).isNull();
+        }
+        
+        assertThat(pollAll()).containsExactly(a1, b1, c1, a2, c2, a3);
+    }
+    
+    @Test
+    void putsAReturningClientAtTheBackOfTheTurns() {
+        RconCommand a1 = command(RconPriority.READ, "a");
+        RconCommand b1 = command(RconPriority.READ, "b");
+        scheduler.offer(a1, 10);
+        scheduler.offer(b1, 10);
+        assertThat(poll()).isSameAs(a1);
+        
+        RconCommand a2 = command(RconPriority.READ, "a");
+        RconCommand c1 = command(RconPriority.READ, "c");
+        scheduler.offer(a2, 10);
+        scheduler.offer(c1, 10);
+        
+        assertThat(pollAll()).containsExactly(b1, a2, c1);
+    }
+    
+    @Test
+    void displacesTheNewestCommandOfTheHeaviestLowerClassClient() {
+        RconCommand light = command(RconPriority.BACKGROUND, "light");
+        RconCommand heavy1 = command(RconPriority.BACKGROUND, "heavy");
+        RconCommand heavy2 = command(RconPriority.BACKGROUND, "heavy");
+        scheduler.offer(light, 5);
+        scheduler.offer(heavy1, 5);
+        scheduler.offer(heavy2, 5);
+        scheduler.offer(command(RconPriority.READ, "reader"), 5);
+        scheduler.offer(command(RconPriority.READ, "reader"), 5);
+        
+        RconCommand write = command(RconPriority.WRITE, "writer");
+        assertThat(scheduler.offer(write, 5)).isSameAs(heavy2);
+        assertThat(scheduler.size()).isEqualTo(5);
+        assertThat(scheduler.size(RconPriority.BACKGROUND)).isEqualTo(2);
+        
+        // The lowest class gives way first, even with a heavier client in the class above
+        assertThat(scheduler.offer(command(RconPriority.WRITE, "writer"), 5)).isIn(light, heavy1);
+        assertThat(scheduler.size(RconPriority.READ)).isEqualTo(2);
+        assertThat(scheduler.size(RconPriority.WRITE)).isEqualTo(2);
+    }
+    
+    @Test
+    void displacesWithinItsOwnClassOnlyForAClientTwoCommandsAhead() {
+        RconCommand a1 = command(RconPriority.READ, "a");
+        RconCommand a2 = command(RconPriority.READ, "a");
+        RconCommand b1 = command(RconPriority.READ, "b");
+        scheduler.offer(a1, 3);
+        scheduler.offer(a2, 3);
+        scheduler.offer(b1, 3);
+        
+        // b has one queued and a two, so a is not far enough ahead
+        RconCommand b2 = command(RconPriority.READ, "b");
+        assertThat(scheduler.offer(b2, 3)).isSameAs(b2);
+        
+        // c has none queued, so a's two are enough
+        RconCommand c1 = command(RconPriority.READ, "c");
+        assertThat(scheduler.offer(c1, 3)).isSameAs(a2);
+        assertThat(pollAll()).containsExactly(a1, b1, c1);
+    }
+    
+    @Test
+    void refusesACommandNothingCanMakeRoomFor() {
+        RconCommand write = command(RconPriority.WRITE, "a");
+        scheduler.offer(write, 1);
+        
+        RconCommand background = command(RconPriority.BACKGROUND, "b");
+        assertThat(scheduler.offer(background, 1)).isSameAs(background);
+        assertThat(scheduler.size()).isOne();
+        assertThat(pollAll()).containsExactly(write);
+    }
+    
+    @Test
+    void movesExpiredCommandsAsideAndSkipsClaimedOnes() {
+        RconCommand expired = new RconCommand("list", null, RconPriority.WRITE, "a", 0, NOW);
+        RconCommand claimed = command(RconPriority.WRITE, "b");
+        RconCommand live = command(RconPriority.READ, "a");
+        scheduler.offer(expired, 10);
+        scheduler.offer(claimed, 10);
+        scheduler.offer(live, 10);
+        claimed.claim();
+        
+        List<RconCommand> expiredOut = new ArrayList<>();
+        assertThat(scheduler.poll(NOW, expiredOut)).isSameAs(live);
+        assertThat(expiredOut).containsExactly(expired);
+        assertThat(scheduler.size()).isZero();
+    }
+    
+    @Test
+    void keepsACommandUntilItsDeadline() {
+        RconCommand command = new RconCommand("list", null, RconPriority.READ, "a", 0, NOW);
+        scheduler.offer(command, 10);
+        
+        List<RconCommand> expired = new ArrayList<>();
+        assertThat(scheduler.poll(NOW - 1, expired)).isSameAs(command);
+        assertThat(expired).isEmpty();
+    }
+    
+    @Test
+    void freesThePlaceOfARemovedCommand() {
+        RconCommand a1 = command(RconPriority.WRITE, "a");
+        RconCommand b1 = command(RconPriority.WRITE, "b");
+        scheduler.offer(a1, 2);
+        scheduler.offer(b1, 2);
+        
+        a1.claim();
+        assertThat(scheduler.remove(a1)).isTrue();
+        assertThat(scheduler.remove(a1)).isFalse();
+        assertThat(scheduler.size()).isOne();
+        
+        RconCommand c1 = command(RconPriority.WRITE, "c");
+        assertThat(scheduler.offer(c1, 2)).isNull();
+        assertThat(pollAll()).containsExactly(b1, c1);
+    }
+    
+    @Test
+    void drainsEveryQueuedCommand() {
+        scheduler.offer(command(RconPriority.WRITE, "a"), 10);
+        scheduler.offer(command(RconPriority.READ, "a"), 10);
+        scheduler.offer(command(RconPriority.READ, "b"), 10);
+        
+        assertThat(scheduler.drain()).hasSize(3);
+        assertThat(scheduler.size()).isZero();
+        assertThat(poll()).isNull();
+    }
+    
+    private RconCommand poll() {
+        List<RconCommand> expired = new ArrayList<>();
+        RconCommand next = scheduler.poll(NOW, expired);
+        assertThat(expired).isEmpty();
+        return next;
+    }
+    
+    private List<RconCommand> pollAll() {
+        List<RconCommand> polled = new ArrayList<>();
+        RconCommand next;
+        while ((next = poll()) != null) {
+            polled.add(next);
+        }
+        return polled;
+    }
+    
+    private static RconCommand command(RconPriority priority, String client) {
+        return new RconCommand("list", null, priority, client, NOW, NOW + 10_000);
+    }
+}
@@ -0,0 +1,97 @@
+package com.whitelisthub.api.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTest {
+    
+    // One token a minute, so nothing refills while a test runs
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+    
+    @Test
+    void allowsABurstUpToCapacity() {
+        RateLimiter limiter = new RateLimiter(3, 1, 100);
+        
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("a")).isZero();
+        }
+        assertThat(limiter.tryAcquire("a")).isPositive().isLessThanOrEqualTo(MINUTE);
+        // Buckets are per key
+        assertThat(limiter.tryAcquire("b")).isZero();
+    }
+    
+    @Test
+    void refillsOneTokenPerInterval() throws InterruptedException {
+        // 100 microseconds per token
+        RateLimiter limiter = new RateLimiter(1, 600_000, 100);
+        
+        assertThat(limiter.tryAcquire("a")).isZero();
+        assertThat(limiter.tryAcquire("a")).isPositive().isLessThanOrEqualTo(TimeUnit.MICROSECONDS.toNanos(100));
+        
+        Thread.sleep(2);
+        assertThat(limiter.tryAcquire("a")).isZero();
+    }
+    
+    @Test
+    void chargesTokensTakenElsewhere() {
+        RateLimiter limiter = new RateLimiter(5, 1, 100);
+        
+        limiter.charge("a", 3);
+        
+        assertThat(limiter.tryAcquire("a")).isZero();
+        assertThat(limiter.tryAcquire("a")).isZero();
+        assertThat(limiter.tryAcquire("a")).isPositive();
+    }
+    
+    @Test
+    void chargesNoFurtherThanAnEmptyBucket() {
+        RateLimiter limiter = new RateLimiter(5, 1, 100);
+        
+        limiter.charge("a", 1_000);
+        
+        // The next token is one interval away, not a thousand
+        assertThat(limiter.tryAcquire("a")).isPositive().isLessThanOrEqualTo(MINUTE);
+    }
+    
+    @Test
+    void drainsTheTokensTakenSinceTheLastDrain() {
+        RateLimiter limiter = new RateLimiter(2, 1, 100, true);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+        // Refused, so not counted
+        limiter.tryAcquire("a");
+        // Charged tokens came from elsewhere and are not passed on again
+        limiter.charge("c", 1);
+        
+        assertThat(limiter.drainTaken()).isEqualTo(Map.of("a", 2, "b", 1));
+        assertThat(limiter.drainTaken()).isEmpty();
+        
+        limiter.tryAcquire("b");
+        assertThat(limiter.drainTaken()).isEqualTo(Map.of("b", 1));
+    }
+    
+    @Test
+    void countsNothingUnlessShared() {
+        RateLimiter limiter = new RateLimiter(2, 1, 100);
+        limiter.tryAcquire("a");
+        
+        assertThat(limiter.drainTaken()).isEmpty();
+    }
+    
+    @Test
+    void sharesAnOverflowBucketOnceTheTableIsFull() {
+        RateLimiter limiter = new RateLimiter(1, 1, 2);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+        
+        assertThat(limiter.tryAcquire("c")).isZero();
+        assertThat(limiter.tryAcquire("d")).isPositive();
+        assertThat(limiter.getTrackedKeys()).isEqualTo(2);
+        assertThat(limiter.getOverflowed()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,115 @@
+package com.whitelisthub.api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WhitelistCacheTest {
+    
+    private final ArrayDeque<CompletableFuture<List<String>>> loads = new ArrayDeque<>();
+    private final WhitelistCache cache = new WhitelistCache(60_000, 100, () -> {
+        CompletableFuture<List<String>> load = new CompletableFuture<>();
+        loads.addLast(load);
+        return load;
+    });
+    
+    @Test
+    void reappliesWritesThatLandDuringALoad() {
+        load(List.of("alice", "bob"));
+        cache.invalidate();
+        
+        CompletableFuture<WhitelistCache.Snapshot> reload = cache.get();
+        cache.onAdded("carol");
+        cache.onRemoved("alice");
+        // The server listed the whitelist before either write
+        loads.removeFirst().complete(List.of("alice", "bob", "dave"));
+        
+        assertThat(reload.join().users()).containsExactly("bob", "carol", "dave");
+        assertThat(cache.get()).isCompletedWithValue(reload.join());
+        assertThat(loads).isEmpty();
+    }
+    
+    @Test
+    void keepsALoadThatAlreadySawTheWrites() {
+        load(List.of("alice"));
+        cache.invalidate();
+        
+        CompletableFuture<WhitelistCache.Snapshot> reload = cache.get();
+        cache.onAdded("bob");
+        loads.removeFirst().complete(List.of("alice", "bob"));
+        
+        WhitelistCache.Snapshot snapshot = reload.join();
+        assertThat(snapshot.users()).containsExactly("alice", "bob");
+        // bob was recorded once, by the write
+        assertThat(cache.changesSince(1).changes()).extracting(WhitelistCache.Change::username).containsExactly("bob");
+    }
+    
+    @Test
+    void limitsReloadsAfterInvalidationsDuringLoads() {
+        load(List.of("alice"));
+        cache.invalidate();
+        
+        for (int i = 0; i < WhitelistCache.MAX_STALE_LOADS; i++) {
+            CompletableFuture<WhitelistCache.Snapshot> reload = cache.get();
+            cache.invalidate();
+            loads.removeFirst().complete(List.of("alice", "peer" + i));
+            assertThat(reload.join().users()).contains("peer" + i);
+        }
+        
+        CompletableFuture<WhitelistCache.Snapshot> reload = cache.get();
+        cache.invalidate();
+        loads.removeFirst().complete(List.of("alice", "last"));
+        reload.join();
+        
+        // Served from the cache until the TTL runs out
+        assertThat(cache.get()).isCompletedWithValue(reload.join());
+        assertThat(loads).isEmpty();
+    }
+    
+    @Test
+    void servesAnExpiredSnapshotWhileItReloads() {
+        load(List.of("alice"));
+        cache.invalidate();
+        
+        CompletableFuture<WhitelistCache.Snapshot> stale = cache.getStale();
+        assertThat(stale).isCompleted();
+        assertThat(stale.join().users()).containsExactly("alice");
+        
+        // One reload for any number of lookups
+        cache.getStale();
+        assertThat(loads).hasSize(1);
+        loads.removeFirst().complete(List.of("alice", "bob"));
+        
+        assertThat(cache.getStale().join().users()).containsExactly("alice", "bob");
+        assertThat(loads).isEmpty();
+    }
+    
+    @Test
+    void waitsForTheFirstLoadOnly() {
+        CompletableFuture<WhitelistCache.Snapshot> first = cache.getStale();
+        assertThat(first).isNotDone();
+        
+        loads.removeFirst().complete(List.of("alice"));
+        assertThat(first.join().users()).containsExactly("alice");
+    }
+    
+    @Test
+    void completesAndClearsALoadWhoseLoaderThrows() {
+        WhitelistCache failing = new WhitelistCache(60_000, 100, () -> {
+            throw new IllegalStateException("down");
+        });
+        
+        assertThat(failing.get()).isCompletedExceptionally();
+        assertThat(failing.get()).isCompletedExceptionally();
+    }
+    
+    private void load(List<String> users) {
+        CompletableFuture<WhitelistCache.Snapshot> first = cache.get();
+        loads.removeFirst().complete(users);
+        first.join();
+    }
+}
@@ -0,0 +1,181 @@
+package com.whitelisthub.api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WhitelistListParserTest {
+    
+    private static final String[] NON_ASCII = {"é", "ß", "Ä", "名", "😀"};
+    private static final String[] SEPARATORS = {",", ", ", ",  ", ",\t", ", \n", " ,", " , "};
+    
+    @Test
+    void matchesOldParserOnRandomFragmentedReplies() {
+        Random random = new Random(42);
+        for (int run = 0; run < 20_000; run++) {
+            String reply = randomReply(random);
+            byte[] bytes = reply.getBytes(StandardCharsets.UTF_8);
+            
+            WhitelistNames parsed = parse(bytes, random);
+            
+            // The old parser saw the whole reply as trimmed text
+            List<String> expected = oldParse(new String(bytes, StandardCharsets.UTF_8).trim());
+            assertThat(parsed).as("reply %s", reply).containsExactlyElementsOf(expected);
+        }
+    }
+    
+    @Test
+    void parsesEveryFragmentBoundary() {
+        byte[] bytes = "There are 3 whitelisted player(s): Alice, Bob_2 ,  Carol\n"
+            .getBytes(StandardCharsets.UTF_8);
+        for (int cut = 0; cut <= bytes.length; cut++) {
+            WhitelistListParser parser = new WhitelistListParser();
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            parser.accept(buffer, 0, cut);
+            parser.accept(buffer, cut, bytes.length - cut);
+            
+            assertThat(parser.finish()).as("cut at %d", cut).containsExactly("Alice", "Bob_2", "Carol");
+        }
+    }
+    
+    @Test
+    void keepsMultiByteCharactersSplitAcrossPackets() {
+        byte[] bytes = "There are 2 whitelisted player(s): Zoë, 名前😀".getBytes(StandardCharsets.UTF_8);
+        // One byte per packet splits every multi-byte character
+        WhitelistListParser parser = new WhitelistListParser();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        for (int i = 0; i < bytes.length; i++) {
+            parser.accept(buffer, i, 1);
+        }
+        
+        WhitelistNames names = parser.finish();
+        assertThat(names).containsExactly("Zoë", "名前😀");
+        assertThat(names.sortedIgnoreCase()).containsExactly("Zoë", "名前😀");
+    }
+    
+    @Test
+    void readsEmptyLists() {
+        assertThat(parse("There are no whitelisted players")).isEmpty();
+        assertThat(parse("There are 0 whitelisted player(s): ")).isEmpty();
+        assertThat(parse("")).isEmpty();
+        assertThat(parse("There are 2 whitelisted player(s): , ,")).isEmpty();
+    }
+    
+    @Test
+    void treatsTheHeaderCountAsAHintOnly() {
+        assertThat(parse("There are 1 whitelisted player(s): A1, B2, C3")).containsExactly("A1", "B2", "C3");
+        assertThat(parse("There are 99999999999 whitelisted player(s): A1")).containsExactly("A1");
+    }
+    
+    @Test
+    void leavesTheBufferPositionAndLimitAlone() {
+        byte[] bytes = "There are 1 whitelisted player(s): Alice".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 8);
+        buffer.put(4, bytes);
+        buffer.limit(bytes.length + 6);
+        
+        WhitelistListParser parser = new WhitelistListParser();
+        parser.accept(buffer, 4, bytes.length);
+        
+        assertThat(parser.finish()).containsExactly("Alice");
+        assertThat(buffer.position()).isZero();
+        assertThat(buffer.limit()).isEqualTo(bytes.length + 6);
+    }
+    
+    private static WhitelistNames parse(String reply) {
+        byte[] bytes = reply.getBytes(StandardCharsets.UTF_8);
+        WhitelistListParser parser = new WhitelistListParser();
+        parser.accept(ByteBuffer.wrap(bytes), 0, bytes.length);
+        return parser.finish();
+    }
+    
+    /**
+     * Feeds {@code bytes} in random packets from a direct buffer, at a random
+     * offset, as the event loop does.
+     */
+    private static WhitelistNames parse(byte[] bytes, Random random) {
+        int base = random.nextInt(32);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(base + bytes.length);
+        buffer.put(base, bytes);
+        
+        WhitelistListParser parser = new WhitelistListParser();
+        int offset = 0;
+        while (offset < bytes.length) {
+            int length = Math.min(bytes.length - offset, 1 + random.nextInt(48));
+            parser.accept(buffer, base + offset, length);
+            offset += length;
+        }
+        return parser.finish();
+    }
+    
+    private static String randomReply(Random random) {
+        if (random.nextInt(50) == 0) {
+            return "There are no whitelisted players";
+        }
+        
+        int count = random.nextInt(40);
+        StringBuilder reply = new StringBuilder();
+        if (random.nextInt(10) == 0) {
+            reply.append(' ');
+        }
+        // The count is sometimes wrong, as a hint must be allowed to be
+        reply.append("There are ").append(random.nextInt(8) == 0 ? random.nextInt(1000) : count)
+            .append(" whitelisted player(s):");
+        for (int i = 0; i < count; i++) {
+            reply.append(i == 0 ? " " : SEPARATORS[random.nextInt(SEPARATORS.length)]);
+            reply.append(randomName(random));
+        }
+        if (random.nextInt(5) == 0) {
+            reply.append(random.nextBoolean() ? "\n" : ", ");
+        }
+        return reply.toString();
+    }
+    
+    private static String randomName(Random random) {
+        int length = 1 + random.nextInt(16);
+        StringBuilder name = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            int pick = random.nextInt(100);
+            if (pick < 3) {
+                name.append(NON_ASCII[random.nextInt(NON_ASCII.length)]);
+            } else if (pick < 5 && i > 0 && i < length - 1) {
+                name.append(' ');
+            } else if (pick < 15) {
+                name.append((char) ('0' + random.nextInt(10)));
+            } else if (pick < 20) {
+                name.append('_');
+            } else {
+                char letter = (char) ('a' + random.nextInt(26));
+                name.append(random.nextBoolean() ? Character.toUpperCase(letter) : letter);
+            }
+        }
+        return name.toString();
+    }
+    
+    /**
+     * The split-based parser the streaming one replaced.
+     */
+    private static List<String> oldParse(String response) {
+        if (response == null || response.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (response.contains(":")) {
+            String[] parts = response.split(":", 2);
+            String userList = parts[1].trim();
+            if (!userList.isEmpty() && !userList.equals("There are no whitelisted players")) {
+                return Arrays.stream(userList.split(",\\s*"))
+                    .map(String::trim)
+                    .filter(u -> !u.isEmpty())
+                    .toList();
+            }
+        }
+        return new ArrayList<>();
+    }
+}
@@ -0,0 +1,193 @@
+package com.whitelisthub.api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WhitelistNamesTest {
+    
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_";
+    
+    @Test
+    void sortsLikeCaseInsensitiveOrder() {
+        Random random = new Random(7);
+        for (int run = 0; run < 500; run++) {
+            List<String> names = randomNames(random, random.nextInt(200), run % 5 == 0);
+            
+            List<String> expected = new ArrayList<>(names);
+            expected.sort(String.CASE_INSENSITIVE_ORDER);
+            
+            WhitelistNames sorted = WhitelistNames.copyOf(names).sortedIgnoreCase();
+            assertThat(sorted).containsExactlyElementsOf(expected);
+            assertThat(sorted.sortedIgnoreCase()).isSameAs(sorted);
+        }
+    }
+    
+    @Test
+    void foldsOnlyAsciiLettersInPlaceOrder() {
+        // '_' sits between the upper and lower case letters, so folding must not be a plain byte compare
+        List<String> names = List.of("bob", "_alice", "Zed", "ALICE", "alice_", "Bob1", "9lives");
+        
+        List<String> expected = new ArrayList<>(names);
+        expected.sort(String.CASE_INSENSITIVE_ORDER);
+        
+        assertThat(WhitelistNames.copyOf(names).sortedIgnoreCase()).containsExactlyElementsOf(expected);
+    }
+    
+    @Test
+    void searchesLikeBinarySearch() {
+        Random random = new Random(11);
+        for (int run = 0; run < 200; run++) {
+            List<String> expected = distinct(randomNames(random, random.nextInt(100), run % 4 == 0));
+            WhitelistNames sorted = WhitelistNames.copyOf(expected).sortedIgnoreCase();
+            
+            for (int probe = 0; probe < 50; probe++) {
+                String name = random.nextBoolean() && !expected.isEmpty()
+                    ? flipCase(expected.get(random.nextInt(expected.size())), random)
+                    : randomName(random, run % 4 == 0);
+                assertThat(sorted.indexOfIgnoreCase(name))
+                    .as("search for %s", name)
+                    .isEqualTo(Collections.binarySearch(expected, name, String.CASE_INSENSITIVE_ORDER));
+            }
+        }
+    }
+    
+    @Test
+    void findsPrefixMatches() {
+        Random random = new Random(13);
+        for (int run = 0; run < 200; run++) {
+            List<String> expected = distinct(randomNames(random, random.nextInt(300), run % 4 == 0));
+            WhitelistNames sorted = WhitelistNames.copyOf(expected).sortedIgnoreCase();
+            
+            String start = randomName(random, false) + "aAbB_".charAt(random.nextInt(5));
+            String prefix = start.substring(0, 1 + random.nextInt(2));
+            int limit = 1 + random.nextInt(10);
+            List<String> matches = expected.stream()
+                .filter(name -> name.regionMatches(true, 0, prefix, 0, prefix.length()))
+                .limit(limit)
+                .toList();
+            assertThat(sorted.withPrefix(prefix, limit)).as("prefix %s", prefix).containsExactlyElementsOf(matches);
+        }
+    }
+    
+    @Test
+    void unionKeepsThisListsSpelling() {
+        Random random = new Random(17);
+        for (int run = 0; run < 300; run++) {
+            List<String> left = distinct(randomNames(random, random.nextInt(100), run % 5 == 0));
+            List<String> right = new ArrayList<>(distinct(randomNames(random, random.nextInt(100), false)));
+            // Some names on both sides, spelt differently
+            for (int i = 0; i < left.size() / 3; i++) {
+                right.add(flipCase(left.get(random.nextInt(left.size())), random));
+            }
+            right = distinct(right);
+            
+            TreeMap<String, String> expected = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            left.forEach(name -> expected.putIfAbsent(name, name));
+            right.forEach(name -> expected.putIfAbsent(name, name));
+            
+            WhitelistNames union = WhitelistNames.copyOf(left).sortedIgnoreCase()
+                .union(WhitelistNames.copyOf(right).sortedIgnoreCase());
+            assertThat(union).containsExactlyElementsOf(expected.values());
+            assertThat(union.indexOfIgnoreCase(expected.isEmpty() ? "x" : expected.firstKey()))
+                .isEqualTo(expected.isEmpty() ? -1 : 0);
+        }
+    }
+    
+    @Test
+    void insertsAndRemovesNames() {
+        Random random = new Random(19);
+        List<String> expected = new ArrayList<>();
+        WhitelistNames names = WhitelistNames.empty();
+        for (int step = 0; step < 2000; step++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                String name = randomName(random, step % 7 == 0);
+                int index = Collections.binarySearch(expected, name, String.CASE_INSENSITIVE_ORDER);
+                if (index < 0) {
+                    expected.add(-index - 1, name);
+                    names = names.with(-index - 1, name);
+                }
+            } else {
+                int index = random.nextInt(expected.size());
+                expected.remove(index);
+                names = names.without(index);
+            }
+            assertThat(names).hasSize(expected.size());
+        }
+        assertThat(names).containsExactlyElementsOf(expected);
+        assertThat(names.sortedIgnoreCase()).isSameAs(names);
+    }
+    
+    @Test
+    void equalsAndHashCodeMatchArrayList() {
+        Random random = new Random(23);
+        for (int run = 0; run < 300; run++) {
+            List<String> list = randomNames(random, random.nextInt(50), run % 3 == 0);
+            WhitelistNames names = WhitelistNames.copyOf(list);
+            
+            assertThat(names).isEqualTo(list);
+            assertThat(list).isEqualTo(names);
+            assertThat(names.hashCode()).isEqualTo(list.hashCode());
+            assertThat(names).isEqualTo(WhitelistNames.copyOf(new ArrayList<>(list)));
+        }
+    }
+    
+    @Test
+    void comparesTablesWithDifferentLayouts() {
+        WhitelistNames names = WhitelistNames.copyOf(List.of("alpha", "beta", "gamma"));
+        
+        // The same names, built by removal rather than copied in
+        WhitelistNames shifted = WhitelistNames.copyOf(List.of("zeta", "alpha", "beta", "gamma")).without(0);
+        assertThat(shifted).isEqualTo(names);
+        assertThat(shifted.hashCode()).isEqualTo(names.hashCode());
+        
+        // Same bytes, split differently
+        assertThat(WhitelistNames.copyOf(List.of("alphab", "eta", "gamma"))).isNotEqualTo(names);
+    }
+    
+    private static List<String> randomNames(Random random, int count, boolean nonAscii) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(randomName(random, nonAscii));
+        }
+        return names;
+    }
+    
+    private static String randomName(Random random, boolean nonAscii) {
+        int length = 1 + random.nextInt(16);
+        StringBuilder name = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            if (nonAscii && random.nextInt(10) == 0) {
+                name.append("éÉßΩω名".charAt(random.nextInt(6)));
+            } else {
+                // Mostly a few letters, so searches and prefixes hit
+                name.append(random.nextInt(4) == 0 ? ALPHABET.charAt(random.nextInt(ALPHABET.length()))
+                    : "aAbB_".charAt(random.nextInt(5)));
+            }
+        }
+        return name.toString();
+    }
+    
+    /**
+     * Sorted and free of names that differ only in case, as a whitelist is.
+     */
+    private static List<String> distinct(List<String> names) {
+        TreeMap<String, String> unique = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        names.forEach(name -> unique.putIfAbsent(name, name));
+        return new ArrayList<>(unique.values());
+    }
+    
+    private static String flipCase(String name, Random random) {
+        StringBuilder flipped = new StringBuilder(name.length());
+        for (char c : name.toCharArray()) {
+            flipped.append(random.nextBoolean() ? Character.toUpperCase(c) : Character.toLowerCase(c));
+        }
+        return flipped.toString();
+    }
+}
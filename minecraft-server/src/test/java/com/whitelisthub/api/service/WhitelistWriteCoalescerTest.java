@@ -0,0 +1,119 @@
+package com.whitelisthub.api.service;
+
+import com.whitelisthub.api.rcon.RconRequestContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WhitelistWriteCoalescerTest {
+    
+    private final List<Sent> sent = new ArrayList<>();
+    private final WhitelistWriteCoalescer coalescer = new WhitelistWriteCoalescer(0, (action, username) -> {
+        Sent command = new Sent(action, username, RconRequestContext.currentClient(), new CompletableFuture<>());
+        sent.add(command);
+        return command.reply();
+    });
+    
+    @Test
+    void sendsAQueuedWriteUnderTheClientThatSubmittedIt() {
+        submitAs("10.0.0.1", "add", "Alice");
+        submitAs("10.0.0.2", "remove", "Alice");
+        
+        // Released from the thread completing the first write, outside any request
+        sent.get(0).reply().complete("Added Alice to the whitelist");
+        
+        assertThat(sent).extracting(Sent::client).containsExactly("10.0.0.1", "10.0.0.2");
+        assertThat(RconRequestContext.currentClient()).isNull();
+    }
+    
+    @Test
+    void collapsesAddRemoveAddIntoTheRunningAdd() {
+        CompletableFuture<String> add = coalescer.submit("add", "Alice");
+        CompletableFuture<String> remove = coalescer.submit("remove", "Alice");
+        CompletableFuture<String> again = coalescer.submit("add", "alice");
+        
+        assertThatThrownBy(remove::join).isInstanceOf(CompletionException.class)
+            .hasCauseInstanceOf(WhitelistWriteCoalescer.SupersededException.class);
+        assertThat(again).isSameAs(add);
+        
+        sent.get(0).reply().complete("Added Alice to the whitelist");
+        assertThat(sent).extracting(Sent::action).containsExactly("add");
+        assertThat(again).isCompletedWithValue("Added Alice to the whitelist");
+        assertThat(coalescer.getMergedCount()).isEqualTo(1);
+        assertThat(coalescer.getSupersededCount()).isEqualTo(1);
+    }
+    
+    @Test
+    void joinsAnIdenticalQueuedWrite() {
+        coalescer.submit("add", "Alice");
+        CompletableFuture<String> remove = coalescer.submit("remove", "Alice");
+        assertThat(coalescer.submit("remove", "Alice")).isSameAs(remove);
+        
+        sent.get(0).reply().complete("Added Alice to the whitelist");
+        sent.get(1).reply().complete("Removed Alice from the whitelist");
+        
+        assertThat(sent).extracting(Sent::action).containsExactly("add", "remove");
+        assertThat(remove).isCompletedWithValue("Removed Alice from the whitelist");
+        assertThat(coalescer.getSupersededCount()).isZero();
+    }
+    
+    @Test
+    void mergesARepeatOfTheRunningWriteAndDropsTheQueuedOne() {
+        CompletableFuture<String> running = coalescer.submit("remove", "Alice");
+        CompletableFuture<String> add = coalescer.submit("add", "Alice");
+        CompletableFuture<String> remove = coalescer.submit("remove", "Alice");
+        
+        // The running remove already reaches the final state
+        assertThatThrownBy(add::join).hasCauseInstanceOf(WhitelistWriteCoalescer.SupersededException.class);
+        assertThat(remove).isSameAs(running);
+        sent.get(0).reply().complete("Removed Alice from the whitelist");
+        
+        assertThat(sent).hasSize(1);
+        assertThat(remove).isCompletedWithValue("Removed Alice from the whitelist");
+    }
+    
+    @Test
+    void sendsWritesForDifferentUsernamesInParallel() {
+        coalescer.submit("add", "Alice");
+        coalescer.submit("add", "Bob");
+        
+        assertThat(sent).extracting(Sent::username).containsExactly("Alice", "Bob");
+    }
+    
+    @Test
+    void collapsesABurstWithinTheWindowBeforeSending() {
+        List<String> windowed = new CopyOnWriteArrayList<>();
+        WhitelistWriteCoalescer delayed = new WhitelistWriteCoalescer(50, (action, username) -> {
+            windowed.add(action);
+            return CompletableFuture.completedFuture(action + " " + username);
+        });
+        
+        CompletableFuture<String> add = delayed.submit("add", "Alice");
+        CompletableFuture<String> remove = delayed.submit("remove", "Alice");
+        CompletableFuture<String> again = delayed.submit("add", "Alice");
+        
+        assertThat(again.join()).isEqualTo("add Alice");
+        assertThat(windowed).containsExactly("add");
+        assertThat(add).isCompletedExceptionally();
+        assertThat(remove).isCompletedExceptionally();
+        assertThat(delayed.getSupersededCount()).isEqualTo(2);
+    }
+    
+    private CompletableFuture<String> submitAs(String client, String action, String username) {
+        RconRequestContext.Scope scope = RconRequestContext.enter(client);
+        try {
+            return coalescer.submit(action, username);
+        } finally {
+            scope.close();
+        }
+    }
+    
+    private record Sent(String action, String username, String client, CompletableFuture<String> reply) {}
+}